@@ -0,0 +1,160 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+// Multi-start solving under a SolveBudget: workers take start cities in order and
+// solve them until the budget runs out, and the best tour found so far is returned
+// Every new best tour is handed to the registered listeners (on the worker thread
+// that found it) and offered to a Flow publisher, so callers can watch convergence
+// or cancel the budget early. A slow subscriber misses intermediate events instead
+// of slowing the solve down; the publisher completes when the solver is closed.
+public class AnytimeSolver implements AutoCloseable {
+    // Solves from one start city with the calling worker's scratch object; the task
+    // should hand the budget to the local search so that it stops in time
+    public interface StartTask<S> {
+        List<Integer> solve(int startCity, Random random, S scratch, SolveBudget budget);
+    }
+
+    public interface ProgressListener {
+        void onImprovement(Progress progress);
+    }
+
+    // One improvement of the best tour
+    public static class Progress {
+        public final List<Integer> tour;
+        public final double score;
+        public final int startCity;
+        public final int startsCompleted;
+        public final double elapsedMillis;
+        public final long movesEvaluated;
+        public final long movesApplied;
+
+        Progress(List<Integer> tour, double score, int startCity, int startsCompleted,
+                 double elapsedMillis, long movesEvaluated, long movesApplied) {
+            this.tour = tour;
+            this.score = score;
+            this.startCity = startCity;
+            this.startsCompleted = startsCompleted;
+            this.elapsedMillis = elapsedMillis;
+            this.movesEvaluated = movesEvaluated;
+            this.movesApplied = movesApplied;
+        }
+    }
+
+    // Best tour when the solve ended, and whether the budget had run out by then
+    public static class Result {
+        public final List<Integer> bestTour;
+        public final double bestScore;
+        public final int bestStartCity;
+        public final int startsCompleted;
+        public final boolean budgetExhausted;
+        public final double elapsedMillis;
+
+        Result(List<Integer> bestTour, double bestScore, int bestStartCity, int startsCompleted,
+               boolean budgetExhausted, double elapsedMillis) {
+            this.bestTour = bestTour;
+            this.bestScore = bestScore;
+            this.bestStartCity = bestStartCity;
+            this.startsCompleted = startsCompleted;
+            this.budgetExhausted = budgetExhausted;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    private final int workers;
+    private final long seed;
+    private final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+    private final SubmissionPublisher<Progress> publisher = new SubmissionPublisher<>();
+
+    // Best tour so far, guarded by lock
+    private final Object lock = new Object();
+    private List<Integer> bestTour;
+    private double bestScore;
+    private int bestStartCity;
+    private final AtomicInteger startsCompleted = new AtomicInteger();
+
+    public AnytimeSolver(int workers, long seed) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be at least 1");
+        }
+        this.workers = workers;
+        this.seed = seed;
+    }
+
+    public void addListener(ProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    // Stream of improvements for asynchronous subscribers
+    public Flow.Publisher<Progress> publisher() {
+        return publisher;
+    }
+
+    // Runs starts 0..n-1 (per-start seeds as in MultiStartSolver) until all are done or
+    // the budget is exhausted; start 0 always runs, so there is always a tour to return
+    public synchronized <S> Result solve(int n, Supplier<S> scratchFactory, StartTask<S> task,
+                                         ToDoubleFunction<List<Integer>> score, SolveBudget budget) {
+        bestTour = null;
+        bestScore = Double.POSITIVE_INFINITY;
+        bestStartCity = -1;
+        AtomicInteger nextStart = new AtomicInteger();
+        startsCompleted.set(0);
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            List<ForkJoinTask<?>> running = new ArrayList<>();
+            for (int w = 0; w < Math.min(workers, n); w++) {
+                running.add(pool.submit(() -> {
+                    S scratch = scratchFactory.get();
+                    while (true) {
+                        int startCity = nextStart.getAndIncrement();
+                        if (startCity >= n || (startCity > 0 && budget.isExhausted())) return;
+                        Random random = new Random(MultiStartSolver.startSeed(seed, startCity));
+                        List<Integer> tour = task.solve(startCity, random, scratch, budget);
+                        int completed = startsCompleted.incrementAndGet();
+                        offer(tour, score.applyAsDouble(tour), startCity, completed, budget);
+                    }
+                }));
+            }
+            for (ForkJoinTask<?> worker : running) {
+                worker.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new Result(bestTour, bestScore, bestStartCity, startsCompleted.get(),
+                budget.isExhausted(), budget.getElapsedMillis());
+    }
+
+    // Offers a tour reached part way through a start, such as a new best of a long
+    // Iterated Local Search, so listeners see progress before the start completes
+    public void offerPartial(List<Integer> tour, double tourScore, int startCity, SolveBudget budget) {
+        offer(tour, tourScore, startCity, startsCompleted.get(), budget);
+    }
+
+    // Keeps the tour if it is the best so far (ties go to the lower start city) and
+    // announces it; the lock keeps events in improving order
+    private void offer(List<Integer> tour, double tourScore, int startCity, int startsCompleted, SolveBudget budget) {
+        synchronized (lock) {
+            if (bestTour != null && (tourScore > bestScore || (tourScore == bestScore && startCity >= bestStartCity))) {
+                return;
+            }
+            bestTour = tour;
+            bestScore = tourScore;
+            bestStartCity = startCity;
+            Progress progress = new Progress(tour, tourScore, startCity, startsCompleted,
+                    budget.getElapsedMillis(), budget.getMovesEvaluated(), budget.getMovesApplied());
+            for (ProgressListener listener : listeners) {
+                listener.onImprovement(progress);
+            }
+            publisher.offer(progress, (subscriber, dropped) -> false);
+        }
+    }
+
+    // Completes the publisher's subscribers
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
@@ -0,0 +1,386 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Long-running batch mode: one JSON request per stdin line, one JSON result per stdout line
+// The dataset is loaded once and its neighbor lists are built once; every request is a
+// subset of its cities, solved on a SubsetDistanceMatrix view with neighbor lists
+// filtered from the shared ones, so a request only pays for its own solve. Solved
+// subsets go into a SubsetCache: a repeated subset (in any order) is answered from it
+// when it was solved with at least the requested kicks and time limit, and otherwise
+// starts from the cached tour, as does a subset overlapping a cached one.
+// Requests run on a fixed pool with a bounded queue. When the queue is full the reading
+// thread solves the request itself, which stops it from reading more input until the
+// pool catches up (back-pressure). Results are written as they finish, tagged with the
+// request id, so they may come out of order.
+//
+// Request:  {"id": "r1", "cities": ["Amsterdam", "Berlin", ...], "kicks": 1000,
+//            "timeLimitMs": 50, "seed": 42, "construction": "GREEDY_EDGE"}
+//           cities may also be indices; everything but cities is optional, and a
+//           missing cities field means every city of the dataset.
+// Response: {"id": "r1", "distance": 1234.56, "tour": ["Amsterdam", ...], "cache": "miss",
+//            "elapsedMs": 1.23}
+//           or {"id": "r1", "error": "..."}
+//           cache is hit, warm (warm-started from a cached tour of the same or an
+//           overlapping subset) or miss, and
+//           the tour begins with the first requested city
+public class BatchSolver {
+    // Candidate list length kept for the whole dataset; subsets filter it down
+    private static final int SHARED_NEIGHBOR_COUNT = 32;
+    // Queued requests per worker before the reader has to wait
+    private static final int QUEUE_CAPACITY_PER_WORKER = 4;
+
+    private final TSPInstance dataset;
+    private final Map<String, Integer> cityIndex = new HashMap<>();
+    private final int[][] sharedNeighbors;
+    private final int workers;
+    private final SubsetCache cache;
+
+    public BatchSolver(TSPInstance dataset, int workers) {
+        this(dataset, workers, SubsetCache.DEFAULT_CAPACITY);
+    }
+
+    public BatchSolver(TSPInstance dataset, int workers, int cacheCapacity) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be at least 1");
+        }
+        this.dataset = dataset;
+        this.workers = workers;
+        this.cache = new SubsetCache(cacheCapacity);
+        List<String> names = dataset.getCityNames();
+        for (int i = 0; i < names.size(); i++) {
+            cityIndex.put(names.get(i), i);
+        }
+        this.sharedNeighbors = LocalSearchEngine.buildNeighborLists(dataset.getDistanceMatrix(), SHARED_NEIGHBOR_COUNT);
+    }
+
+    // Reads requests until end of input and writes every result; returns when all are done
+    public void serve(BufferedReader in, PrintStream out) throws IOException, InterruptedException {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * QUEUE_CAPACITY_PER_WORKER),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String request = line;
+                pool.execute(() -> {
+                    String response = solve(request);
+                    synchronized (out) {
+                        out.println(response);
+                        out.flush();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+        }
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    // Solves one request line; errors are reported in the response, never thrown
+    public String solve(String requestLine) {
+        long startTime = System.nanoTime();
+        Object id = null;
+        try {
+            Map<String, Object> request = Json.parseObject(requestLine);
+            id = request.get("id");
+            int[] cities = cities(request.get("cities"));
+            int[] canonical = SubsetCache.canonical(cities);
+            long kicks = ((Number) request.getOrDefault("kicks", 0)).longValue();
+            long timeLimitMillis = ((Number) request.getOrDefault("timeLimitMs", 0)).longValue();
+            long seed = ((Number) request.getOrDefault("seed", 42)).longValue();
+            TourConstruction.Method construction = TourConstruction.Method.valueOf(
+                    ((String) request.getOrDefault("construction", "GREEDY_EDGE")).toUpperCase(Locale.ROOT));
+            if (construction == TourConstruction.Method.SPACE_FILLING_CURVE
+                    && !(dataset.getDistanceMatrix() instanceof CoordinateDistanceMatrix)) {
+                throw new IllegalArgumentException("SPACE_FILLING_CURVE construction needs a dataset with coordinates");
+            }
+
+            String cacheResult;
+            int[] baseTour;
+            double distance;
+            SubsetCache.Entry cached = cache.get(canonical, kicks, timeLimitMillis);
+            if (cached != null && cached.covers(kicks, timeLimitMillis)) {
+                cacheResult = "hit";
+                baseTour = cached.getTour();
+                distance = cached.getDistance();
+            } else {
+                SubsetDistanceMatrix view = new SubsetDistanceMatrix(dataset.getDistanceMatrix(), canonical);
+                int[][] neighbors = view.neighborLists(sharedNeighbors, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+                Random random = new Random(seed);
+                List<Integer> initialTour = cached != null ? cache.resume(view, cached, neighbors)
+                                                           : cache.warmStart(view, canonical, neighbors);
+                cacheResult = initialTour != null ? "warm" : "miss";
+                if (initialTour == null) {
+                    initialTour = construction == TourConstruction.Method.SPACE_FILLING_CURVE
+                            ? spaceFillingCurve(canonical)
+                            : new TourConstruction.InitialTours(construction, view, neighbors).tour(0, random);
+                }
+                SolveBudget budget = timeLimitMillis > 0 ? SolveBudget.ofMillis(timeLimitMillis) : null;
+                LocalSearchEngine engine = new LocalSearchEngine(view, neighbors);
+                List<Integer> tour = kicks > 0
+                        ? LinKernighanTSP.iteratedLinKernighan(new IteratedLocalSearch(engine), initialTour, random, kicks, budget)
+                        : LinKernighanTSP.linKernighan(engine, initialTour, budget);
+                distance = LinKernighanTSP.calculateTourDistance(view, tour);
+                if (Double.isInfinite(distance)) {
+                    // Not valid JSON, and not worth caching: some pair has no path at all
+                    throw new IllegalArgumentException("No tour: some requested cities cannot be reached from others");
+                }
+                baseTour = new int[tour.size()];
+                for (int i = 0; i < baseTour.length; i++) {
+                    baseTour[i] = view.baseCity(tour.get(i));
+                }
+                cache.put(canonical, baseTour, distance, kicks, timeLimitMillis);
+            }
+
+            StringBuilder response = new StringBuilder();
+            response.append("{\"id\": ").append(Json.toJson(id));
+            response.append(", \"distance\": ").append(distance);
+            response.append(", \"tour\": [");
+            int offset = 0;
+            while (baseTour[offset] != cities[0]) offset++;
+            for (int i = 0; i < baseTour.length; i++) {
+                if (i > 0) response.append(", ");
+                response.append(Json.toJson(dataset.getCityNames().get(baseTour[(offset + i) % baseTour.length])));
+            }
+            response.append("], \"cache\": \"").append(cacheResult);
+            response.append("\", \"elapsedMs\": ").append(String.format(Locale.ROOT, "%.2f", (System.nanoTime() - startTime) / 1_000_000.0));
+            return response.append('}').toString();
+        } catch (RuntimeException e) {
+            return "{\"id\": " + Json.toJson(id) + ", \"error\": " + Json.toJson(String.valueOf(e.getMessage())) + "}";
+        }
+    }
+
+    // Space-filling curve tour of a subset, in view indices starting at 0; the subset
+    // view hides the coordinates, so the curve runs on the subset's own coordinates
+    private List<Integer> spaceFillingCurve(int[] canonical) {
+        CoordinateDistanceMatrix coordinates = ((CoordinateDistanceMatrix) dataset.getDistanceMatrix()).subset(canonical);
+        List<Integer> tour = TourConstruction.spaceFillingCurve(coordinates);
+        Collections.rotate(tour, -tour.indexOf(0));
+        return tour;
+    }
+
+    // Dataset indices of the requested cities, given by name or index
+    private int[] cities(Object value) {
+        if (value == null) {
+            int[] all = new int[dataset.size()];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+            return all;
+        }
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("cities must be an array");
+        }
+        List<?> list = (List<?>) value;
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException("cities must not be empty");
+        }
+        int[] cities = new int[list.size()];
+        for (int i = 0; i < cities.length; i++) {
+            Object city = list.get(i);
+            if (city instanceof Number) {
+                // Indices must be whole numbers within the dataset; 1.9 is not city 1
+                if (!(city instanceof Long)) {
+                    throw new IllegalArgumentException("City index must be an integer: " + city);
+                }
+                long index = (Long) city;
+                if (index < 0 || index >= dataset.size()) {
+                    throw new IllegalArgumentException("City index out of range: " + city);
+                }
+                cities[i] = (int) index;
+            } else {
+                Integer index = cityIndex.get(String.valueOf(city));
+                if (index == null) {
+                    throw new IllegalArgumentException("Unknown city: " + city);
+                }
+                cities[i] = index;
+            }
+        }
+        return cities;
+    }
+
+    public static void main(String[] args) {
+        // Arguments: dataset file, number of worker threads, matrix storage and cache capacity
+        String filePath = args.length > 0 ? args[0] : "DistanceBetweenEuropeanCities.csv";
+        try {
+            int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+            DistanceMatrix.Storage storage = args.length > 2 ? DistanceMatrix.Storage.valueOf(args[2].toUpperCase()) : DistanceMatrix.Storage.FLAT;
+            int cacheCapacity = args.length > 3 ? Integer.parseInt(args[3]) : SubsetCache.DEFAULT_CAPACITY;
+
+            TSPInstance dataset = TSPLoader.load(filePath, Integer.MAX_VALUE, storage);
+            BatchSolver solver = new BatchSolver(dataset, workers, cacheCapacity);
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+            solver.serve(in, System.out);
+        } catch (IOException e) {
+            System.err.println("Error reading input: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java BatchSolver [file] [workers] [FLAT|TRIANGULAR|FLOAT|QUANTIZED|OFF_HEAP] [cacheCapacity]");
+        }
+    }
+
+    // Just enough JSON for the request/response lines: objects, arrays, strings,
+    // numbers (as Long or Double), booleans and null
+    static final class Json {
+        private final String text;
+        private int pos;
+
+        private Json(String text) {
+            this.text = text;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Map<String, Object> parseObject(String text) {
+            Json parser = new Json(text);
+            Object value = parser.value();
+            parser.skipWhitespace();
+            if (parser.pos != text.length() || !(value instanceof Map)) {
+                throw new IllegalArgumentException("Request must be a single JSON object");
+            }
+            return (Map<String, Object>) value;
+        }
+
+        static String toJson(Object value) {
+            if (value == null) return "null";
+            if (value instanceof Number || value instanceof Boolean) return value.toString();
+            String s = value.toString();
+            StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') sb.append('\\').append(c);
+                else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                else sb.append(c);
+            }
+            return sb.append('"').toString();
+        }
+
+        private Object value() {
+            skipWhitespace();
+            if (pos >= text.length()) throw error("Unexpected end of input");
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{': return object();
+                case '[': return array();
+                case '"': return string();
+                case 't': return literal("true", Boolean.TRUE);
+                case 'f': return literal("false", Boolean.FALSE);
+                case 'n': return literal("null", null);
+                default: return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') throw error("Expected a field name");
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                map.put(key, value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String string() {
+            StringBuilder sb = new StringBuilder();
+            pos++;
+            while (true) {
+                if (pos >= text.length()) throw error("Unterminated string");
+                char c = text.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) throw error("Unterminated string");
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) throw error("Bad unicode escape");
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(escaped);
+                }
+            }
+        }
+
+        private Number number() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+            String token = text.substring(start, pos);
+            if (token.isEmpty()) throw error("Unexpected character");
+            try {
+                if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) {
+                    return Long.parseLong(token);
+                }
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                throw error("Bad number " + token);
+            }
+        }
+
+        private Object literal(String word, Object value) {
+            if (!text.startsWith(word, pos)) throw error("Unexpected character");
+            pos += word.length();
+            return value;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : '\0';
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw error("Expected '" + c + "'");
+            pos++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+}
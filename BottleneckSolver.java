@@ -0,0 +1,274 @@
+import java.util.*;
+
+// Bottleneck TSP engine: minimizes the longest edge of the tour
+// Binary search over the sorted distinct edge weights: for a threshold t the current
+// best tour is repaired with the regular local search on a penalized matrix in which
+// every edge longer than t costs an extra penalty. If all long edges disappear the
+// threshold is feasible and the search moves down, otherwise it moves up. A final
+// 2-opt descent works on the bottleneck directly, scoring moves from the ranks of the
+// four edges against a per-weight edge count (BottleneckTracker) instead of rescanning
+// the tour.
+public class BottleneckSolver {
+    // Above this size only candidate-list and tour edges are used as thresholds
+    private static final int ALL_PAIRS_LIMIT = 2000;
+
+    // Best tour found, its longest edge and a lower bound on the optimum
+    public static class Result {
+        public final List<Integer> tour;
+        public final double bottleneck;
+        public final double lowerBound;
+
+        Result(List<Integer> tour, double bottleneck, double lowerBound) {
+            this.tour = tour;
+            this.bottleneck = bottleneck;
+            this.lowerBound = lowerBound;
+        }
+    }
+
+    private final DistanceMatrix distanceMatrix;
+    private final int n;
+    private final int[][] neighbors;
+
+    public BottleneckSolver(DistanceMatrix distanceMatrix, int[][] neighbors) {
+        if (distanceMatrix.isDirected()) {
+            throw new IllegalArgumentException("The Bottleneck TSP moves reverse paths, so they need a symmetric instance");
+        }
+        this.distanceMatrix = distanceMatrix;
+        this.n = distanceMatrix.size();
+        this.neighbors = neighbors;
+    }
+
+    // Improves the bottleneck of initialTour (typically a good total-length tour)
+    public Result solve(List<Integer> initialTour) {
+        return solve(initialTour, null);
+    }
+
+    // Same as above, but stops early once the budget, which may be null, is exhausted
+    // and returns the best tour reached so far
+    public Result solve(List<Integer> initialTour, SolveBudget budget) {
+        SolverMetrics.Phase phase = SolverMetrics.phase("bottleneck");
+        try {
+            return optimize(initialTour, budget);
+        } finally {
+            phase.close();
+        }
+    }
+
+    private Result optimize(List<Integer> initialTour, SolveBudget budget) {
+        int[] best = new int[n];
+        for (int i = 0; i < n; i++) best[i] = initialTour.get(i);
+        if (n < 4) {
+            return new Result(new ArrayList<>(initialTour), longestEdge(best), longestEdge(best));
+        }
+
+        double[] weights = thresholdWeights(best);
+        double lowerBound = lowerBound();
+        double upper = longestEdge(best);
+
+        int lo = lowerIndex(weights, lowerBound);
+        int hi = lowerIndex(weights, upper);
+        int[] candidate = new int[n];
+        while (lo < hi && (budget == null || !budget.isExhausted())) {
+            int mid = (lo + hi) >>> 1;
+            double threshold = weights[mid];
+            System.arraycopy(best, 0, candidate, 0, n);
+            ThresholdMatrix penalized = new ThresholdMatrix(distanceMatrix, threshold, 4 * weights[weights.length - 1] + 1);
+            // A repair cut short by the budget proves nothing about the threshold
+            if (!new LocalSearchEngine(penalized, neighbors).optimize(candidate, budget)) break;
+
+            double achieved = longestEdge(candidate);
+            if (achieved <= threshold) {
+                System.arraycopy(candidate, 0, best, 0, n);
+                hi = Math.min(mid, lowerIndex(weights, achieved));
+            } else {
+                lo = mid + 1;
+            }
+        }
+
+        descend(best, new BottleneckTracker(weights), budget);
+        List<Integer> tour = LinKernighanTSP.toList(best, initialTour.get(0));
+        return new Result(tour, longestEdge(best), lowerBound);
+    }
+
+    // Every optimal tour has two edges at each city, so the largest second-shortest
+    // incident edge bounds the bottleneck from below (neighbor lists are sorted)
+    public double lowerBound() {
+        double bound = 0;
+        for (int city = 0; city < n; city++) {
+            bound = Math.max(bound, distanceMatrix.get(city, neighbors[city][1]));
+        }
+        return bound;
+    }
+
+    // Sorted distinct weights that may serve as thresholds
+    private double[] thresholdWeights(int[] tour) {
+        double[] weights;
+        int count = 0;
+        if (n <= ALL_PAIRS_LIMIT) {
+            weights = new double[n * (n - 1) / 2];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    weights[count++] = distanceMatrix.get(i, j);
+                }
+            }
+        } else {
+            weights = new double[n * neighbors[0].length + n];
+            for (int city = 0; city < n; city++) {
+                for (int other : neighbors[city]) {
+                    weights[count++] = distanceMatrix.get(city, other);
+                }
+                weights[count++] = distanceMatrix.get(tour[city], tour[(city + 1) % n]);
+            }
+        }
+        Arrays.sort(weights, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (weights[i] >= DistanceMatrix.INF) break;
+            if (unique == 0 || weights[i] != weights[unique - 1]) weights[unique++] = weights[i];
+        }
+        return Arrays.copyOf(weights, Math.max(unique, 1));
+    }
+
+    // First index whose weight is >= value (last index if none)
+    private static int lowerIndex(double[] weights, double value) {
+        int index = Arrays.binarySearch(weights, value);
+        if (index < 0) index = -index - 1;
+        return Math.min(index, weights.length - 1);
+    }
+
+    private double longestEdge(int[] tour) {
+        double longest = 0;
+        for (int i = 0; i < tour.length; i++) {
+            longest = Math.max(longest, distanceMatrix.get(tour[i], tour[(i + 1) % tour.length]));
+        }
+        return longest;
+    }
+
+    // 2-opt descent on (longest edge, number of edges at that length), lexicographically;
+    // the tracker only changes when a move is applied
+    private void descend(int[] tour, BottleneckTracker tracker, SolveBudget budget) {
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[tour[i]] = i;
+            tracker.add(distanceMatrix.get(tour[i], tour[(i + 1) % n]));
+        }
+
+        boolean improved = true;
+        while (improved && (budget == null || !budget.isExhausted())) {
+            improved = false;
+            for (int i = 0; i < n && !improved; i++) {
+                int a = tour[i];
+                int b = tour[(i + 1) % n];
+                double longest = distanceMatrix.get(a, b);
+                if (tracker.rank(longest) != tracker.maxRank()) continue;
+
+                for (int c : neighbors[a]) {
+                    double ac = distanceMatrix.get(a, c);
+                    if (ac >= longest) break;
+                    int e = tour[(position[c] + 1) % n];
+                    if (c == b || e == a) continue;
+                    double ce = distanceMatrix.get(c, e);
+                    double be = distanceMatrix.get(b, e);
+                    if (be >= longest) continue;
+
+                    // Both new edges are shorter than (a, b), so the longest edge cannot grow:
+                    // the move improves iff it lowers the number of edges at the top rank
+                    // (to zero when the bottleneck itself drops)
+                    int top = tracker.maxRank();
+                    int topChange = -1 - (tracker.rank(ce) == top ? 1 : 0)
+                            + (tracker.rank(ac) == top ? 1 : 0) + (tracker.rank(be) == top ? 1 : 0);
+                    if (topChange < 0) {
+                        tracker.remove(longest);
+                        tracker.remove(ce);
+                        tracker.add(ac);
+                        tracker.add(be);
+                        reverse(tour, position, position[b], position[c]);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // Reverses the cyclic path tour[i..j] (or its complement, whichever is shorter)
+    private static void reverse(int[] tour, int[] position, int i, int j) {
+        int n = tour.length;
+        int length = j - i;
+        if (length < 0) length += n;
+        length++;
+        if (length * 2 > n) {
+            int newI = (j + 1) % n;
+            j = (i - 1 + n) % n;
+            i = newI;
+            length = n - length;
+        }
+        for (int swaps = length / 2; swaps > 0; swaps--) {
+            int ci = tour[i];
+            int cj = tour[j];
+            tour[i] = cj;
+            position[cj] = i;
+            tour[j] = ci;
+            position[ci] = j;
+            i = (i + 1) % n;
+            j = (j - 1 + n) % n;
+        }
+    }
+
+    // Multiset of tour edge weights with O(1) max queries
+    // Weights map to ranks over the sorted threshold weights: weights in the list get
+    // odd ranks, weights between list entries the even rank in between, so order is kept.
+    // The descent only applies moves that never add an edge above the max, so the max
+    // only moves down and removals scan every rank at most once over the whole descent.
+    static final class BottleneckTracker {
+        private final double[] weights;
+        private final int[] count;
+        private int maxRank = -1;
+
+        BottleneckTracker(double[] weights) {
+            this.weights = weights;
+            this.count = new int[2 * weights.length + 1];
+        }
+
+        int rank(double weight) {
+            int index = Arrays.binarySearch(weights, weight);
+            return index >= 0 ? 2 * index + 1 : 2 * (-index - 1);
+        }
+
+        void add(double weight) {
+            int rank = rank(weight);
+            count[rank]++;
+            if (rank > maxRank) maxRank = rank;
+        }
+
+        void remove(double weight) {
+            count[rank(weight)]--;
+            while (maxRank >= 0 && count[maxRank] == 0) maxRank--;
+        }
+
+        int maxRank() {
+            return maxRank;
+        }
+    }
+
+    // Distances plus a fixed penalty on every edge longer than the threshold; the
+    // penalty keeps the original order of edges, so neighbor lists stay valid
+    static final class ThresholdMatrix extends DistanceMatrix {
+        private final DistanceMatrix base;
+        private final double threshold;
+        private final double penalty;
+
+        ThresholdMatrix(DistanceMatrix base, double threshold, double penalty) {
+            super(base.size());
+            this.base = base;
+            this.threshold = threshold;
+            this.penalty = penalty;
+        }
+
+        @Override
+        public double get(int i, int j) {
+            double distance = base.get(i, j);
+            return distance > threshold && distance < INF ? distance + penalty : distance;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Periodically saves the best tour of an AnytimeSolver run to a tour file
+// Registered as a progress listener, it only remembers the latest improvement on the
+// worker thread; a background thread writes it every interval if it changed, and close
+// writes whatever is left, so a killed run loses at most one interval of progress and
+// the solve never waits for the disk.
+//
+//     try (Checkpointer checkpointer = new Checkpointer(path, fingerprint, 5000, 0)) {
+//         solver.addListener(checkpointer);
+//         solver.solve(...);
+//     }
+public class Checkpointer implements AnytimeSolver.ProgressListener, AutoCloseable {
+    public static final long DEFAULT_INTERVAL_MILLIS = 5000;
+
+    private final Path path;
+    private final long fingerprint;
+    // Solve time of the run this one resumes, added to the saved elapsed time
+    private final double resumedMillis;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<AnytimeSolver.Progress> pending = new AtomicReference<>();
+    private final AtomicInteger checkpointsWritten = new AtomicInteger();
+
+    public Checkpointer(Path path, long fingerprint, long intervalMillis, double resumedMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.path = path;
+        this.fingerprint = fingerprint;
+        this.resumedMillis = resumedMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onImprovement(AnytimeSolver.Progress progress) {
+        pending.set(progress);
+    }
+
+    // Writes the latest improvement, if any arrived since the last write
+    public synchronized void flush() throws IOException {
+        AnytimeSolver.Progress progress = pending.getAndSet(null);
+        if (progress == null) return;
+        try {
+            TSPBinaryFormat.writeTour(path, fingerprint, progress.tour, progress.score, resumedMillis + progress.elapsedMillis);
+        } catch (IOException e) {
+            // Keep it for the next attempt unless a newer improvement has arrived
+            pending.compareAndSet(null, progress);
+            throw e;
+        }
+        checkpointsWritten.incrementAndGet();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // Retried at the next interval, and reported by close if it keeps failing
+        }
+    }
+
+    public int getCheckpointsWritten() {
+        return checkpointsWritten.get();
+    }
+
+    // Stops the background writes and saves the final improvement
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,164 @@
+// Distances computed on the fly from city coordinates, so no n*n storage is needed
+// Supports the TSPLIB EUC_2D and GEO metrics and plain great-circle kilometres for
+// latitude/longitude files. Metrics that need trigonometry go through a small
+// direct-mapped cache of recently used pairs.
+public final class CoordinateDistanceMatrix extends DistanceMatrix {
+    public enum Metric {
+        // TSPLIB EUC_2D: Euclidean distance rounded to the nearest integer
+        EUC_2D,
+        // TSPLIB GEO: coordinates in DDD.MM format, integer kilometres on the TSPLIB sphere
+        GEO,
+        // Latitude/longitude in decimal degrees, great-circle kilometres (haversine)
+        HAVERSINE
+    }
+
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+    private static final double TSPLIB_PI = 3.141592;
+    private static final double TSPLIB_EARTH_RADIUS = 6378.388;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final Metric metric;
+    private final double[] x;
+    private final double[] y;
+    // Precomputed radians for the spherical metrics
+    private final double[] latitude;
+    private final double[] longitude;
+    private final double[] cosLatitude;
+    // Direct-mapped cache in two parallel arrays, overwritten in place. Concurrent
+    // workers share it without locking: a slot stores key ^ distance bits, so a slot
+    // read half-way through another worker's write fails the key check and is recomputed.
+    private final long[] cacheKeys;
+    private final double[] cacheDistances;
+    private final int cacheMask;
+
+    public CoordinateDistanceMatrix(double[] x, double[] y, Metric metric) {
+        this(x, y, metric, metric == Metric.EUC_2D ? 0 : DEFAULT_CACHE_SIZE);
+    }
+
+    // cacheSize is rounded up to a power of two; 0 disables the cache
+    public CoordinateDistanceMatrix(double[] x, double[] y, Metric metric, int cacheSize) {
+        super(x.length);
+        if (y.length != x.length) {
+            throw new IllegalArgumentException("Coordinate arrays differ in length");
+        }
+        this.metric = metric;
+        this.x = x.clone();
+        this.y = y.clone();
+
+        if (metric == Metric.EUC_2D) {
+            latitude = longitude = cosLatitude = null;
+        } else {
+            latitude = new double[n];
+            longitude = new double[n];
+            cosLatitude = new double[n];
+            for (int i = 0; i < n; i++) {
+                latitude[i] = metric == Metric.GEO ? tsplibRadians(x[i]) : Math.toRadians(x[i]);
+                longitude[i] = metric == Metric.GEO ? tsplibRadians(y[i]) : Math.toRadians(y[i]);
+                cosLatitude[i] = Math.cos(latitude[i]);
+            }
+        }
+
+        if (cacheSize > 0) {
+            int size = Integer.highestOneBit(Math.max(1, cacheSize - 1)) << 1;
+            cacheKeys = new long[size];
+            cacheDistances = new double[size];
+            cacheMask = size - 1;
+        } else {
+            cacheKeys = null;
+            cacheDistances = null;
+            cacheMask = 0;
+        }
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    // First coordinate (x, or latitude for the spherical metrics)
+    public double getX(int city) {
+        return x[city];
+    }
+
+    // Second coordinate (y, or longitude for the spherical metrics)
+    public double getY(int city) {
+        return y[city];
+    }
+
+    // The given cities, in that order, as an instance of their own (without a cache)
+    public CoordinateDistanceMatrix subset(int[] cities) {
+        double[] subsetX = new double[cities.length];
+        double[] subsetY = new double[cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            subsetX[i] = x[cities[i]];
+            subsetY[i] = y[cities[i]];
+        }
+        return new CoordinateDistanceMatrix(subsetX, subsetY, metric, 0);
+    }
+
+    // Points for spatial indexing, as [dimension][city]: the plane for EUC_2D, unit
+    // vectors otherwise (chord length orders pairs the same way as arc length)
+    double[][] spatialCoordinates() {
+        if (metric == Metric.EUC_2D) {
+            return new double[][] {x, y};
+        }
+        double[][] points = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            points[0][i] = cosLatitude[i] * Math.cos(longitude[i]);
+            points[1][i] = cosLatitude[i] * Math.sin(longitude[i]);
+            points[2][i] = Math.sin(latitude[i]);
+        }
+        return points;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        if (i == j) return 0;
+        if (cacheKeys == null) return compute(i, j);
+
+        // Symmetric metric: key the pair with the smaller index first
+        long key = i < j ? ((long) i << 32) | j : ((long) j << 32) | i;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & cacheMask;
+        double cached = cacheDistances[slot];
+        if ((cacheKeys[slot] ^ Double.doubleToRawLongBits(cached)) == key) {
+            return cached;
+        }
+        double distance = compute(i, j);
+        cacheDistances[slot] = distance;
+        cacheKeys[slot] = key ^ Double.doubleToRawLongBits(distance);
+        return distance;
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    private double compute(int i, int j) {
+        switch (metric) {
+            case EUC_2D: {
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+            }
+            case GEO: {
+                double q1 = Math.cos(longitude[i] - longitude[j]);
+                double q2 = Math.cos(latitude[i] - latitude[j]);
+                double q3 = Math.cos(latitude[i] + latitude[j]);
+                return (int) (TSPLIB_EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+            }
+            default: {
+                double sinLat = Math.sin((latitude[j] - latitude[i]) / 2);
+                double sinLon = Math.sin((longitude[j] - longitude[i]) / 2);
+                double h = sinLat * sinLat + cosLatitude[i] * cosLatitude[j] * sinLon * sinLon;
+                return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(h)));
+            }
+        }
+    }
+
+    // TSPLIB GEO coordinates are DDD.MM (degrees and minutes); TSPLIB fixes PI at 3.141592
+    private static double tsplibRadians(double value) {
+        double degrees = (int) value;
+        double minutes = value - degrees;
+        return TSPLIB_PI * (degrees + 5.0 * minutes / 3.0) / 180.0;
+    }
+}
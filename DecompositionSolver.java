@@ -0,0 +1,332 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Decomposition for very large instances: partition, solve clusters in parallel, stitch, repair
+// 1. Partition into clusters of at most clusterSize cities: recursive median bisection
+//    of the coordinates for coordinate instances, region growing over the k-nearest
+//    neighbor graph for matrix instances.
+// 2. Solve every cluster independently (greedy edge + local search, optionally Iterated
+//    Local Search) on a SubsetDistanceMatrix view, in parallel.
+// 3. Order the clusters by a small tour over one representative city per cluster, open
+//    every cluster tour at the edge that joins its neighbors most cheaply and chain them.
+// 4. Repair: local search over the whole tour, but with only the cities near cluster
+//    boundaries queued, so it only reworks the seams.
+// Coordinate distances are computed on demand, so memory stays O(n * neighbors); no
+// global matrix is built.
+public class DecompositionSolver {
+    public static final int DEFAULT_CLUSTER_SIZE = 1000;
+    // Candidate list length shared by all clusters (filtered per cluster)
+    private static final int GLOBAL_NEIGHBOR_COUNT = 16;
+    // A city is on a boundary if one of this many nearest neighbors is in another cluster
+    private static final int BOUNDARY_NEIGHBORS = 5;
+    // Kicks per cluster when ordering the cluster representatives
+    private static final int ORDER_KICKS_PER_CLUSTER = 10;
+
+    private final DistanceMatrix distanceMatrix;
+    private final int n;
+    private final int clusterSize;
+    private final int workers;
+    private final long seed;
+    private int[][] neighbors;
+    private int clusterCount;
+
+    public DecompositionSolver(DistanceMatrix distanceMatrix, int clusterSize, int workers, long seed) {
+        if (clusterSize < 3) {
+            throw new IllegalArgumentException("Cluster size must be at least 3");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be at least 1");
+        }
+        this.distanceMatrix = distanceMatrix;
+        this.n = distanceMatrix.size();
+        this.clusterSize = clusterSize;
+        this.workers = workers;
+        this.seed = seed;
+    }
+
+    // Full pipeline; kicks is the number of ILS kicks per cluster (0 for plain local search)
+    public List<Integer> solve(long kicks) {
+        neighbors = LocalSearchEngine.buildNeighborLists(distanceMatrix, GLOBAL_NEIGHBOR_COUNT);
+        List<int[]> clusters = distanceMatrix instanceof CoordinateDistanceMatrix
+                ? bisect(((CoordinateDistanceMatrix) distanceMatrix).spatialCoordinates())
+                : growRegions();
+        clusterCount = clusters.size();
+
+        List<int[]> clusterTours = solveClusters(clusters, kicks);
+        int[] clusterOf = new int[n];
+        for (int c = 0; c < clusters.size(); c++) {
+            for (int city : clusters.get(c)) clusterOf[city] = c;
+        }
+        int[] tour = stitch(clusterTours, order(clusters));
+        repair(tour, clusterOf);
+        return LinKernighanTSP.toList(tour, 0);
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    // Recursive median split on the widest coordinate until parts fit clusterSize
+    private List<int[]> bisect(double[][] points) {
+        int[] cities = new int[n];
+        for (int i = 0; i < n; i++) cities[i] = i;
+        List<int[]> clusters = new ArrayList<>();
+        bisect(points, cities, 0, n, clusters);
+        return clusters;
+    }
+
+    private void bisect(double[][] points, int[] cities, int lo, int hi, List<int[]> clusters) {
+        if (hi - lo <= clusterSize) {
+            clusters.add(Arrays.copyOfRange(cities, lo, hi));
+            return;
+        }
+        int bestDimension = 0;
+        double bestSpread = -1;
+        for (int d = 0; d < points.length; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                double v = points[d][cities[i]];
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+            if (max - min > bestSpread) {
+                bestSpread = max - min;
+                bestDimension = d;
+            }
+        }
+        int mid = (lo + hi) >>> 1;
+        select(points[bestDimension], cities, lo, hi - 1, mid);
+        bisect(points, cities, lo, mid, clusters);
+        bisect(points, cities, mid, hi, clusters);
+    }
+
+    // Quickselect: places the k-th smallest of cities[lo..hi] (by coordinate) at k
+    private static void select(double[] coordinate, int[] cities, int lo, int hi, int k) {
+        while (hi > lo) {
+            double pivot = coordinate[cities[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate[cities[i]] < pivot) i++;
+                while (coordinate[cities[j]] > pivot) j--;
+                if (i <= j) {
+                    int tmp = cities[i];
+                    cities[i] = cities[j];
+                    cities[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    // Breadth-first regions of up to clusterSize cities over the neighbor graph, each
+    // seeded at the lowest unassigned city
+    private List<int[]> growRegions() {
+        boolean[] assigned = new boolean[n];
+        int[] region = new int[clusterSize];
+        List<int[]> clusters = new ArrayList<>();
+        for (int seedCity = 0; seedCity < n; seedCity++) {
+            if (assigned[seedCity]) continue;
+            int size = 0;
+            region[size++] = seedCity;
+            assigned[seedCity] = true;
+            for (int head = 0; head < size && size < clusterSize; head++) {
+                for (int neighbor : neighbors[region[head]]) {
+                    if (assigned[neighbor]) continue;
+                    assigned[neighbor] = true;
+                    region[size++] = neighbor;
+                    if (size == clusterSize) break;
+                }
+            }
+            clusters.add(Arrays.copyOf(region, size));
+        }
+        return clusters;
+    }
+
+    // Cluster tours as global city ids, solved in parallel with per-cluster seeds
+    private List<int[]> solveClusters(List<int[]> clusters, long kicks) {
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            List<ForkJoinTask<int[]>> tasks = new ArrayList<>();
+            for (int c = 0; c < clusters.size(); c++) {
+                int[] cluster = clusters.get(c);
+                long clusterSeed = MultiStartSolver.startSeed(seed, c);
+                tasks.add(pool.submit(() -> solveCluster(cluster, kicks, new Random(clusterSeed))));
+            }
+            List<int[]> tours = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<int[]> task : tasks) {
+                tours.add(task.join());
+            }
+            return tours;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private int[] solveCluster(int[] cluster, long kicks, Random random) {
+        if (cluster.length < 4) return cluster.clone();
+        SubsetDistanceMatrix view = new SubsetDistanceMatrix(distanceMatrix, cluster);
+        int[][] clusterNeighbors = view.neighborLists(neighbors, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+        List<Integer> initialTour = TourConstruction.greedyEdge(view, clusterNeighbors);
+        int[] tour = new int[cluster.length];
+        for (int i = 0; i < tour.length; i++) tour[i] = initialTour.get(i);
+
+        LocalSearchEngine engine = new LocalSearchEngine(view, clusterNeighbors);
+        if (kicks > 0) {
+            new IteratedLocalSearch(engine).optimize(tour, random, kicks, null);
+        } else {
+            engine.optimize(tour);
+        }
+        for (int i = 0; i < tour.length; i++) tour[i] = view.baseCity(tour[i]);
+        return tour;
+    }
+
+    // Visiting order of the clusters: a tour over one representative city per cluster
+    private int[] order(List<int[]> clusters) {
+        int k = clusters.size();
+        int[] representatives = new int[k];
+        for (int c = 0; c < k; c++) representatives[c] = representative(clusters.get(c));
+        int[] order = new int[k];
+        for (int c = 0; c < k; c++) order[c] = c;
+        if (k < 4) return order;
+
+        SubsetDistanceMatrix view = new SubsetDistanceMatrix(distanceMatrix, representatives);
+        int[][] representativeNeighbors = view.neighborLists(neighbors, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+        List<Integer> initialTour = TourConstruction.greedyEdge(view, representativeNeighbors);
+        for (int c = 0; c < k; c++) order[c] = initialTour.get(c);
+        new IteratedLocalSearch(new LocalSearchEngine(view, representativeNeighbors))
+                .optimize(order, new Random(seed), (long) ORDER_KICKS_PER_CLUSTER * k, null);
+        return order;
+    }
+
+    // Member closest to the centroid for coordinate clusters, the region seed otherwise
+    private int representative(int[] cluster) {
+        if (!(distanceMatrix instanceof CoordinateDistanceMatrix)) return cluster[0];
+        CoordinateDistanceMatrix coordinates = (CoordinateDistanceMatrix) distanceMatrix;
+        double x = 0;
+        double y = 0;
+        for (int city : cluster) {
+            x += coordinates.getX(city);
+            y += coordinates.getY(city);
+        }
+        x /= cluster.length;
+        y /= cluster.length;
+        int best = cluster[0];
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int city : cluster) {
+            double dx = coordinates.getX(city) - x;
+            double dy = coordinates.getY(city) - y;
+            if (dx * dx + dy * dy < bestDistance) {
+                bestDistance = dx * dx + dy * dy;
+                best = city;
+            }
+        }
+        return best;
+    }
+
+    // Chains the cluster tours in the given order. Each cycle is opened at the edge (u, v)
+    // and in the direction that best connects the previous cluster's exit to the next
+    // cluster, measured against the next cluster's first city. On a directed matrix a
+    // cluster tour is only walked forward: reversing it would traverse every edge the
+    // other way, at costs the comparison below never sees.
+    private int[] stitch(List<int[]> clusterTours, int[] order) {
+        int k = order.length;
+        boolean reversible = !distanceMatrix.isDirected();
+        int[] tour = new int[n];
+        int size = 0;
+        int previousExit = clusterTours.get(order[k - 1])[0];
+        DistanceMatrix d = distanceMatrix;
+        for (int c = 0; c < k; c++) {
+            int[] cycle = clusterTours.get(order[c]);
+            int target = clusterTours.get(order[(c + 1) % k])[0];
+            int m = cycle.length;
+
+            int bestEdge = 0;
+            boolean bestForward = true;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < m; j++) {
+                int u = cycle[j];
+                int v = cycle[j + 1 == m ? 0 : j + 1];
+                double kept = m > 1 ? d.get(u, v) : 0;
+                // Forward: enter at v, walk on to u; reversed: enter at u, walk back to v
+                double forward = d.get(previousExit, v) + d.get(u, target) - kept;
+                double reversed = d.get(previousExit, u) + d.get(v, target) - kept;
+                if (forward < bestCost) {
+                    bestCost = forward;
+                    bestEdge = j;
+                    bestForward = true;
+                }
+                if (reversible && reversed < bestCost) {
+                    bestCost = reversed;
+                    bestEdge = j;
+                    bestForward = false;
+                }
+            }
+            for (int step = 0; step < m; step++) {
+                int index = bestForward ? (bestEdge + 1 + step) % m : ((bestEdge - step) % m + m) % m;
+                tour[size++] = cycle[index];
+            }
+            previousExit = tour[size - 1];
+        }
+        return tour;
+    }
+
+    // Local search from the cities with a near neighbor in another cluster (which
+    // includes every seam), leaving cluster interiors alone unless a move reaches them
+    private void repair(int[] tour, int[] clusterOf) {
+        LocalSearchEngine engine = new LocalSearchEngine(distanceMatrix, neighbors);
+        engine.attach(tour);
+        for (int city = 0; city < n; city++) {
+            int[] list = neighbors[city];
+            for (int i = 0; i < Math.min(BOUNDARY_NEIGHBORS, list.length); i++) {
+                if (clusterOf[list[i]] != clusterOf[city]) {
+                    engine.queue(city);
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            // Seam endpoints, in case a cluster has no near neighbor elsewhere
+            if (clusterOf[tour[i]] != clusterOf[tour[(i + 1) % n]]) {
+                engine.queue(tour[i]);
+                engine.queue(tour[(i + 1) % n]);
+            }
+        }
+        engine.improve(null);
+        engine.detach();
+    }
+
+    public static void main(String[] args) {
+        // Arguments: file (any format TSPLoader reads), cluster size, workers, ILS kicks per cluster, seed
+        String filePath = args.length > 0 ? args[0] : "DistanceBetweenEuropeanCities.csv";
+        try {
+            int clusterSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLUSTER_SIZE;
+            int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            long kicks = args.length > 3 ? Long.parseLong(args[3]) : 0;
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+
+            TSPInstance instance = TSPLoader.load(filePath, Integer.MAX_VALUE, DistanceMatrix.Storage.FLAT);
+            DistanceMatrix distanceMatrix = instance.getDistanceMatrix();
+
+            long startTime = System.nanoTime();
+            DecompositionSolver solver = new DecompositionSolver(distanceMatrix, clusterSize, workers, seed);
+            List<Integer> tour = solver.solve(kicks);
+            double elapsedTime = (System.nanoTime() - startTime) / 1_000_000.0;
+
+            System.out.println("Cities: " + distanceMatrix.size() + " in " + solver.getClusterCount() + " clusters");
+            System.out.println("Tour Distance: " + String.format("%.2f", LinKernighanTSP.calculateTourDistance(distanceMatrix, tour)));
+            System.out.printf("Computation Time: %.2f milliseconds\n", elapsedTime);
+        } catch (IOException e) {
+            System.err.println("Error reading the file: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java DecompositionSolver [file] [clusterSize] [workers] [kicks] [seed]");
+        }
+    }
+}
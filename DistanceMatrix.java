@@ -0,0 +1,274 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+// Read access to pairwise distances, with several storage backends
+// Solvers only call size() and get(i, j). The array backends below (Writable) are filled
+// once by their creator through set() and are read-only afterwards; views such as
+// coordinate, subset and penalized matrices compute get() and cannot be written at all.
+// A run may read through several implementations (subset views in batch and
+// decomposition mode, the penalized view of the bottleneck solver), so get is virtual.
+// Missing pairs read as Double.MAX_VALUE on every backend. Matrices filled from one-way
+// data are marked directed, and solvers then only use moves that keep the direction of travel.
+public abstract class DistanceMatrix {
+    public static final double INF = Double.MAX_VALUE;
+
+    public enum Storage {
+        // n*n doubles in one row-major array (up to ~46k cities)
+        FLAT,
+        // n*(n-1)/2 doubles, upper triangle only; symmetric instances (up to ~65k cities)
+        TRIANGULAR,
+        // n*n floats, half the memory of FLAT at ~7 significant digits
+        FLOAT,
+        // n*n ints in hundredths, matching the two-decimal rounding of tour distances
+        QUANTIZED,
+        // n*n doubles in direct (off-heap) buffers, not limited by array size or heap
+        OFF_HEAP
+    }
+
+    protected final int n;
+    private boolean directed;
+
+    protected DistanceMatrix(int n) {
+        this.n = n;
+    }
+
+    public final int size() {
+        return n;
+    }
+
+    public abstract double get(int i, int j);
+
+    // Whether get(i, j) == get(j, i) holds by construction
+    public boolean isSymmetric() {
+        return false;
+    }
+
+    // Whether some get(i, j) != get(j, i), so a tour and its reverse differ in length
+    public boolean isDirected() {
+        return directed;
+    }
+
+    void setDirected(boolean directed) {
+        if (directed && isSymmetric()) {
+            throw new IllegalArgumentException("A symmetric backend cannot hold a directed matrix");
+        }
+        this.directed = directed;
+    }
+
+    // Empty matrix of the given backend: INF everywhere except a zero diagonal
+    public static DistanceMatrix create(int n, Storage storage) {
+        return writable(n, storage);
+    }
+
+    // Same as create, for the loaders that fill it
+    static Writable writable(int n, Storage storage) {
+        Writable matrix;
+        switch (storage) {
+            case FLAT: matrix = new Flat(n); break;
+            case TRIANGULAR: matrix = new Triangular(n); break;
+            case FLOAT: matrix = new FloatFlat(n); break;
+            case QUANTIZED: matrix = new Quantized(n); break;
+            case OFF_HEAP: matrix = new OffHeap(n); break;
+            default: throw new IllegalArgumentException("Unknown storage: " + storage);
+        }
+        return matrix;
+    }
+
+    // Copies a double[][] matrix into the given backend
+    public static DistanceMatrix of(double[][] distances, Storage storage) {
+        int n = distances.length;
+        Writable matrix = writable(n, storage);
+        for (int i = 0; i < n; i++) {
+            for (int j = matrix.isSymmetric() ? i + 1 : 0; j < n; j++) {
+                if (matrix.isSymmetric() && distances[i][j] != distances[j][i]) {
+                    throw new IllegalArgumentException(storage + " storage needs a symmetric matrix, but ["
+                            + i + "][" + j + "] != [" + j + "][" + i + "]");
+                }
+                if (i != j) matrix.set(i, j, distances[i][j]);
+                if (distances[i][j] != distances[j][i]) matrix.setDirected(true);
+            }
+        }
+        return matrix;
+    }
+
+    public static DistanceMatrix of(double[][] distances) {
+        return of(distances, Storage.FLAT);
+    }
+
+    // Checks every pair, since array backends do not record symmetry
+    static boolean hasSymmetricValues(DistanceMatrix matrix) {
+        if (matrix.isSymmetric()) return true;
+        int n = matrix.size();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (matrix.get(i, j) != matrix.get(j, i)) return false;
+            }
+        }
+        return true;
+    }
+
+    static int checkedSquare(int n) {
+        long cells = (long) n * n;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(n + " cities do not fit in an array backend; use OFF_HEAP");
+        }
+        return (int) cells;
+    }
+
+    // Array backend that its creator fills before handing it to the solvers
+    abstract static class Writable extends DistanceMatrix {
+        Writable(int n) {
+            super(n);
+        }
+
+        // Writes one entry; symmetric backends store both directions at once
+        abstract void set(int i, int j, double distance);
+    }
+
+    static final class Flat extends Writable {
+        private final double[] data;
+
+        Flat(int n) {
+            super(n);
+            data = new double[checkedSquare(n)];
+            java.util.Arrays.fill(data, INF);
+            for (int i = 0; i < n; i++) data[i * n + i] = 0;
+        }
+
+        @Override
+        public double get(int i, int j) {
+            return data[i * n + j];
+        }
+
+        @Override
+        void set(int i, int j, double distance) {
+            data[i * n + j] = distance;
+        }
+    }
+
+    static final class Triangular extends Writable {
+        private final double[] data;
+        // Index of (i, j), i < j, is rowOffset[i] + j
+        private final int[] rowOffset;
+
+        Triangular(int n) {
+            super(n);
+            long cells = (long) n * (n - 1) / 2;
+            if (cells > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException(n + " cities do not fit in TRIANGULAR storage; use OFF_HEAP");
+            }
+            data = new double[(int) cells];
+            java.util.Arrays.fill(data, INF);
+            rowOffset = new int[n];
+            for (int i = 0; i < n; i++) {
+                rowOffset[i] = (int) ((long) i * (2L * n - i - 1) / 2 - i - 1);
+            }
+        }
+
+        @Override
+        public double get(int i, int j) {
+            if (i < j) return data[rowOffset[i] + j];
+            if (i > j) return data[rowOffset[j] + i];
+            return 0;
+        }
+
+        @Override
+        void set(int i, int j, double distance) {
+            if (i < j) data[rowOffset[i] + j] = distance;
+            else if (i > j) data[rowOffset[j] + i] = distance;
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            return true;
+        }
+    }
+
+    static final class FloatFlat extends Writable {
+        private final float[] data;
+
+        FloatFlat(int n) {
+            super(n);
+            data = new float[checkedSquare(n)];
+            java.util.Arrays.fill(data, Float.POSITIVE_INFINITY);
+            for (int i = 0; i < n; i++) data[i * n + i] = 0;
+        }
+
+        @Override
+        public double get(int i, int j) {
+            float value = data[i * n + j];
+            return value == Float.POSITIVE_INFINITY ? INF : value;
+        }
+
+        @Override
+        void set(int i, int j, double distance) {
+            data[i * n + j] = distance >= INF ? Float.POSITIVE_INFINITY : (float) distance;
+        }
+    }
+
+    static final class Quantized extends Writable {
+        private static final double SCALE = 100.0;
+        private static final int MISSING = Integer.MAX_VALUE;
+        private final int[] data;
+
+        Quantized(int n) {
+            super(n);
+            data = new int[checkedSquare(n)];
+            java.util.Arrays.fill(data, MISSING);
+            for (int i = 0; i < n; i++) data[i * n + i] = 0;
+        }
+
+        @Override
+        public double get(int i, int j) {
+            int value = data[i * n + j];
+            return value == MISSING ? INF : value / SCALE;
+        }
+
+        @Override
+        void set(int i, int j, double distance) {
+            if (distance >= INF) {
+                data[i * n + j] = MISSING;
+                return;
+            }
+            long scaled = Math.round(distance * SCALE);
+            if (scaled >= MISSING || scaled < Integer.MIN_VALUE) {
+                throw new IllegalArgumentException("Distance " + distance + " is out of range for QUANTIZED storage");
+            }
+            data[i * n + j] = (int) scaled;
+        }
+    }
+
+    static final class OffHeap extends Writable {
+        // 2^27 doubles (1 GiB) per direct buffer
+        private static final int CHUNK_SHIFT = 27;
+        private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+        private final DoubleBuffer[] chunks;
+
+        OffHeap(int n) {
+            super(n);
+            long cells = (long) n * n;
+            int count = (int) ((cells + CHUNK_MASK) >>> CHUNK_SHIFT);
+            chunks = new DoubleBuffer[count];
+            for (int c = 0; c < count; c++) {
+                long size = Math.min(1L << CHUNK_SHIFT, cells - ((long) c << CHUNK_SHIFT));
+                chunks[c] = ByteBuffer.allocateDirect((int) size * Double.BYTES)
+                        .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+                for (int k = 0; k < size; k++) chunks[c].put(k, INF);
+            }
+            for (int i = 0; i < n; i++) set(i, i, 0);
+        }
+
+        @Override
+        public double get(int i, int j) {
+            long index = (long) i * n + j;
+            return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+        }
+
+        @Override
+        void set(int i, int j, double distance) {
+            long index = (long) i * n + j;
+            chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), distance);
+        }
+    }
+}
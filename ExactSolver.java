@@ -0,0 +1,681 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Exact solvers for small instances, used to measure how far heuristic tours are from optimal
+// Held-Karp: dynamic programming over (visited subset, last city) with subsets as
+// bitmasks indexing one primitive array. A subset only depends on subsets one city
+// smaller, so each subset size is a layer whose entries are solved in parallel.
+// O(2^n n^2) time and 2^(n-1) (n-1) doubles of memory limit it to about 20 cities.
+// Branch and bound: best-first search over edge inclusions and exclusions, bounded by
+// Held-Karp 1-trees (a minimum spanning tree on cities 1..n-1 plus the two cheapest
+// edges at city 0) under subgradient-optimized city penalties. The search is pruned
+// against the best tour known, which starts as the heuristic tour, and every node
+// warm-starts from its parent's penalties. 1-trees need a symmetric instance.
+public class ExactSolver {
+    public static final int HELD_KARP_MAX_CITIES = 20;
+    // Subgradient iterations at the root and at every other node
+    private static final int ROOT_ITERATIONS = 1000;
+    private static final int NODE_ITERATIONS = 100;
+    // Iterations without a better bound before the step size is halved
+    private static final int STEP_PATIENCE = 10;
+    private static final double MIN_STEP_SCALE = 1e-4;
+    // Layer slices smaller than this are not split further between workers
+    private static final int LAYER_CHUNK = 1024;
+    private static final double EPSILON = 1e-7;
+
+    private static final byte FREE = 0;
+    private static final byte INCLUDED = 1;
+    private static final byte EXCLUDED = -1;
+
+    // A tour with a proof of its quality: lowerBound == length when it is optimal,
+    // otherwise (budget exhausted) the best bound of the nodes left unexplored
+    public static class Result {
+        public final List<Integer> tour;
+        public final double length;
+        public final double lowerBound;
+        public final boolean optimal;
+        public final long nodes;
+        public final double elapsedMillis;
+
+        Result(List<Integer> tour, double length, double lowerBound, boolean optimal, long nodes, double elapsedMillis) {
+            this.tour = tour;
+            this.length = length;
+            this.lowerBound = lowerBound;
+            this.optimal = optimal;
+            this.nodes = nodes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        // Relative excess of a tour length over the optimum (over the lower bound, and so
+        // an upper bound on the true gap, if optimality was not proven)
+        public double gap(double tourLength) {
+            return Math.max(0, (tourLength - lowerBound) / lowerBound);
+        }
+    }
+
+    private ExactSolver() {
+    }
+
+    // Held-Karp for small instances, branch and bound from the heuristic tour otherwise
+    public static Result solve(DistanceMatrix distanceMatrix, List<Integer> heuristicTour, int workers, SolveBudget budget) {
+        if (distanceMatrix.size() <= HELD_KARP_MAX_CITIES) {
+            return heldKarp(distanceMatrix, workers);
+        }
+        return branchAndBound(distanceMatrix, heuristicTour, budget);
+    }
+
+    public static Result heldKarp(DistanceMatrix distanceMatrix, int workers) {
+        long startTime = System.nanoTime();
+        int n = distanceMatrix.size();
+        if (n < 2 || n > HELD_KARP_MAX_CITIES) {
+            throw new IllegalArgumentException("Held-Karp handles 2 to " + HELD_KARP_MAX_CITIES + " cities, not " + n);
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be at least 1");
+        }
+        double[] dist = copy(distanceMatrix);
+
+        // cost[mask * m + j]: shortest path from city 0 through the cities of mask (bit j is
+        // city j + 1), ending at city j + 1
+        int m = n - 1;
+        int full = (1 << m) - 1;
+        double[] cost = new double[(full + 1) * m];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < m; j++) {
+            cost[(1 << j) * m + j] = dist[j + 1];
+        }
+        int[][] layers = layers(m);
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            for (int size = 2; size <= m; size++) {
+                pool.invoke(new LayerRange(layers[size], 0, layers[size].length, cost, dist, n));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        int last = -1;
+        double length = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < m; j++) {
+            double closed = cost[full * m + j] + dist[(j + 1) * n];
+            if (last < 0 || closed < length) {
+                length = closed;
+                last = j;
+            }
+        }
+
+        if (length >= DistanceMatrix.INF) {
+            // Backtracking needs a finite tour to follow
+            throw new IllegalArgumentException("No tour: some cities cannot be reached from others");
+        }
+
+        // Walk back through the layers, finding the predecessor that produced each entry
+        int[] tour = new int[n];
+        int mask = full;
+        int j = last;
+        for (int position = n - 1; position >= 1; position--) {
+            tour[position] = j + 1;
+            int previous = mask ^ (1 << j);
+            double target = cost[mask * m + j];
+            int predecessor = -1;
+            for (int others = previous; others != 0; others &= others - 1) {
+                int k = Integer.numberOfTrailingZeros(others);
+                if (cost[previous * m + k] + dist[(k + 1) * n + j + 1] == target) {
+                    predecessor = k;
+                    break;
+                }
+            }
+            mask = previous;
+            j = predecessor;
+        }
+        double elapsedMillis = (System.nanoTime() - startTime) / 1_000_000.0;
+        return new Result(toList(tour), length, length, true, (long) (full + 1) * m, elapsedMillis);
+    }
+
+    // Masks of m bits grouped by the number of bits set, each group in increasing order
+    private static int[][] layers(int m) {
+        int[][] layers = new int[m + 1][];
+        for (int size = 1; size <= m; size++) {
+            long count = 1;
+            for (int i = 0; i < size; i++) {
+                count = count * (m - i) / (i + 1);
+            }
+            int[] layer = new int[(int) count];
+            int k = 0;
+            // Gosper's hack: next larger integer with the same number of bits set
+            for (int mask = (1 << size) - 1; mask < (1 << m); ) {
+                layer[k++] = mask;
+                int lowest = mask & -mask;
+                int ripple = mask + lowest;
+                mask = (((ripple ^ mask) >>> 2) / lowest) | ripple;
+            }
+            layers[size] = layer;
+        }
+        return layers;
+    }
+
+    // Fills the cost entries of a slice of one layer
+    private static class LayerRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] layer;
+        private final int from;
+        private final int to;
+        private final double[] cost;
+        private final double[] dist;
+        private final int n;
+
+        LayerRange(int[] layer, int from, int to, double[] cost, double[] dist, int n) {
+            this.layer = layer;
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.dist = dist;
+            this.n = n;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LAYER_CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LayerRange(layer, from, mid, cost, dist, n),
+                          new LayerRange(layer, mid, to, cost, dist, n));
+                return;
+            }
+            int m = n - 1;
+            for (int index = from; index < to; index++) {
+                int mask = layer[index];
+                for (int rest = mask; rest != 0; rest &= rest - 1) {
+                    int j = Integer.numberOfTrailingZeros(rest);
+                    int previous = mask ^ (1 << j);
+                    double best = Double.POSITIVE_INFINITY;
+                    for (int others = previous; others != 0; others &= others - 1) {
+                        int k = Integer.numberOfTrailingZeros(others);
+                        double candidate = cost[previous * m + k] + dist[(k + 1) * n + j + 1];
+                        if (candidate < best) best = candidate;
+                    }
+                    cost[mask * m + j] = best;
+                }
+            }
+        }
+    }
+
+    // Proves the heuristic tour optimal or finds a better one, until the budget (may be null) runs out
+    public static Result branchAndBound(DistanceMatrix distanceMatrix, List<Integer> heuristicTour, SolveBudget budget) {
+        if (heuristicTour.size() != distanceMatrix.size()) {
+            throw new IllegalArgumentException("Expected a tour of " + distanceMatrix.size() + " cities, got " + heuristicTour.size());
+        }
+        return new BranchAndBound(distanceMatrix, heuristicTour).solve(budget);
+    }
+
+    // One subproblem: edge states as a symmetric n*n array, with the penalties and the
+    // 1-tree that gave its bound
+    private static final class Node {
+        final byte[] fixed;
+        double[] pi;
+        double bound;
+        int[] degree;
+        int[] parent;
+        int zeroA;
+        int zeroB;
+
+        Node(byte[] fixed, double[] pi) {
+            this.fixed = fixed;
+            this.pi = pi;
+        }
+    }
+
+    private static final class BranchAndBound {
+        private final int n;
+        private final double[] dist;
+        // Tour lengths are multiples of this (0 if the distances have no common unit)
+        private final double unit;
+        private final double maxEdge;
+        private int[] bestTour;
+        private double upper;
+        private long nodes;
+
+        // 1-tree scratch
+        private final double[] key;
+        private final boolean[] inTree;
+        private final int[] parent;
+        private final int[] degree;
+        private int zeroA;
+        private int zeroB;
+
+        BranchAndBound(DistanceMatrix distanceMatrix, List<Integer> heuristicTour) {
+            this.n = distanceMatrix.size();
+            if (n < 3) {
+                throw new IllegalArgumentException("Branch and bound needs at least 3 cities");
+            }
+            this.dist = copy(distanceMatrix);
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (dist[i * n + j] != dist[j * n + i]) {
+                        throw new IllegalArgumentException("Branch and bound needs a symmetric instance; Held-Karp takes asymmetric ones up to "
+                                + HELD_KARP_MAX_CITIES + " cities");
+                    }
+                }
+            }
+            this.unit = commonUnit(dist);
+            double longest = 0;
+            for (double d : dist) if (d < DistanceMatrix.INF) longest = Math.max(longest, d);
+            this.maxEdge = longest;
+            this.bestTour = new int[n];
+            for (int i = 0; i < n; i++) bestTour[i] = heuristicTour.get(i);
+            this.upper = length(bestTour);
+            this.key = new double[n];
+            this.inTree = new boolean[n];
+            this.parent = new int[n];
+            this.degree = new int[n];
+        }
+
+        Result solve(SolveBudget budget) {
+            long startTime = System.nanoTime();
+            byte[] fixed = new byte[n * n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i == j || dist[i * n + j] >= DistanceMatrix.INF) fixed[i * n + j] = EXCLUDED;
+                }
+            }
+            PriorityQueue<Node> open = new PriorityQueue<>(Comparator.comparingDouble((Node node) -> node.bound));
+            Node root = new Node(fixed, new double[n]);
+            // No 1-tree, or forced edges that cannot form a tour: no tour exists at all,
+            // which must not be mistaken for the heuristic tour being optimal
+            if (!propagate(fixed) || oneTree(fixed, root.pi) == Double.POSITIVE_INFINITY) {
+                throw new IllegalArgumentException("No tour: some cities cannot be reached from others");
+            }
+            if (evaluate(root, ROOT_ITERATIONS)) open.add(root);
+            double rootBound = root.bound;
+
+            while (!open.isEmpty() && (budget == null || !budget.isExhausted())) {
+                Node node = open.poll();
+                if (pruned(node.bound)) {
+                    // Best-first: every other open node is bounded at least as high
+                    open.clear();
+                    break;
+                }
+                nodes++;
+                for (Node child : branch(node)) {
+                    if (evaluate(child, NODE_ITERATIONS)) open.add(child);
+                }
+            }
+
+            boolean optimal = open.isEmpty();
+            double lowerBound = optimal ? upper : Math.min(upper, Math.max(rootBound, open.peek().bound));
+            double elapsedMillis = (System.nanoTime() - startTime) / 1_000_000.0;
+            return new Result(toList(bestTour), upper, lowerBound, optimal, nodes, elapsedMillis);
+        }
+
+        // Whether no tour within the bound can beat the best tour known
+        private boolean pruned(double bound) {
+            if (unit > 0) bound = Math.ceil(bound / unit - EPSILON) * unit;
+            return bound >= upper - EPSILON;
+        }
+
+        // Subgradient ascent on the node's penalties; false if the node needs no branching
+        // (infeasible, pruned, or its best 1-tree is a tour, which then updates the best tour)
+        private boolean evaluate(Node node, int iterations) {
+            double[] pi = node.pi.clone();
+            double best = Double.NEGATIVE_INFINITY;
+            double scale = 2.0;
+            int sinceImproved = 0;
+            for (int iteration = 0; iteration < iterations && scale > MIN_STEP_SCALE; iteration++) {
+                double value = oneTree(node.fixed, pi);
+                if (value == Double.POSITIVE_INFINITY) return false;
+                if (value > best + EPSILON) {
+                    best = value;
+                    node.pi = pi.clone();
+                    node.degree = degree.clone();
+                    node.parent = parent.clone();
+                    node.zeroA = zeroA;
+                    node.zeroB = zeroB;
+                    sinceImproved = 0;
+                } else if (++sinceImproved >= STEP_PATIENCE) {
+                    scale /= 2;
+                    sinceImproved = 0;
+                }
+
+                double norm = 0;
+                for (int i = 0; i < n; i++) norm += (degree[i] - 2) * (degree[i] - 2);
+                if (norm == 0) {
+                    // The 1-tree is a tour satisfying the node's constraints: the node's optimum
+                    int[] tour = treeTour();
+                    double tourLength = length(tour);
+                    if (tourLength < upper - EPSILON) {
+                        upper = tourLength;
+                        bestTour = tour;
+                    }
+                    return false;
+                }
+                if (pruned(best)) return false;
+
+                double step = scale * (upper - value) / norm;
+                for (int i = 0; i < n; i++) pi[i] += step * (degree[i] - 2);
+            }
+            node.bound = best;
+            return !pruned(best);
+        }
+
+        // Lagrangian value of the minimum 1-tree under penalties pi; fills parent, degree,
+        // zeroA and zeroB. Included edges get a weight low enough that they are always taken.
+        private double oneTree(byte[] fixed, double[] pi) {
+            double maxPenalty = 0;
+            for (int i = 0; i < n; i++) maxPenalty = Math.max(maxPenalty, Math.abs(pi[i]));
+            double bonus = 2 * (maxEdge + 2 * maxPenalty) + 1;
+            int included = 0;
+
+            // Prim's algorithm on cities 1..n-1
+            Arrays.fill(inTree, false);
+            Arrays.fill(degree, 0);
+            inTree[1] = true;
+            parent[1] = -1;
+            for (int v = 2; v < n; v++) {
+                key[v] = weight(fixed, pi, bonus, 1, v);
+                parent[v] = 1;
+            }
+            double total = 0;
+            for (int added = 2; added < n; added++) {
+                int next = -1;
+                for (int v = 2; v < n; v++) {
+                    if (!inTree[v] && (next < 0 || key[v] < key[next])) next = v;
+                }
+                if (key[next] == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+                inTree[next] = true;
+                total += key[next];
+                degree[next]++;
+                degree[parent[next]]++;
+                if (fixed[next * n + parent[next]] == INCLUDED) included++;
+                for (int v = 2; v < n; v++) {
+                    if (!inTree[v]) {
+                        double w = weight(fixed, pi, bonus, next, v);
+                        if (w < key[v]) {
+                            key[v] = w;
+                            parent[v] = next;
+                        }
+                    }
+                }
+            }
+
+            // The two cheapest edges at city 0
+            zeroA = -1;
+            zeroB = -1;
+            for (int v = 1; v < n; v++) {
+                double w = weight(fixed, pi, bonus, 0, v);
+                if (zeroA < 0 || w < weight(fixed, pi, bonus, 0, zeroA)) {
+                    zeroB = zeroA;
+                    zeroA = v;
+                } else if (zeroB < 0 || w < weight(fixed, pi, bonus, 0, zeroB)) {
+                    zeroB = v;
+                }
+            }
+            double wa = weight(fixed, pi, bonus, 0, zeroA);
+            double wb = weight(fixed, pi, bonus, 0, zeroB);
+            if (wb == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+            total += wa + wb;
+            degree[0] = 2;
+            degree[zeroA]++;
+            degree[zeroB]++;
+            if (fixed[zeroA] == INCLUDED) included++;
+            if (fixed[zeroB] == INCLUDED) included++;
+
+            // Every included edge must be in the tree, or the bonus was not earned
+            int required = 0;
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (fixed[i * n + j] == INCLUDED) required++;
+                }
+            }
+            if (included < required) return Double.POSITIVE_INFINITY;
+
+            total += bonus * included;
+            for (int i = 0; i < n; i++) total -= 2 * pi[i];
+            return total;
+        }
+
+        private double weight(byte[] fixed, double[] pi, double bonus, int i, int j) {
+            byte state = fixed[i * n + j];
+            if (state == EXCLUDED) return Double.POSITIVE_INFINITY;
+            double w = dist[i * n + j] + pi[i] + pi[j];
+            return state == INCLUDED ? w - bonus : w;
+        }
+
+        // The current 1-tree, every degree 2, as a tour from city 0
+        private int[] treeTour() {
+            int[][] adjacent = new int[n][2];
+            int[] count = new int[n];
+            for (int v = 2; v < n; v++) {
+                link(adjacent, count, v, parent[v]);
+            }
+            link(adjacent, count, 0, zeroA);
+            link(adjacent, count, 0, zeroB);
+            int[] tour = new int[n];
+            int previous = 0;
+            int city = zeroA;
+            for (int i = 1; i < n; i++) {
+                tour[i] = city;
+                int next = adjacent[city][0] == previous ? adjacent[city][1] : adjacent[city][0];
+                previous = city;
+                city = next;
+            }
+            return tour;
+        }
+
+        private static void link(int[][] adjacent, int[] count, int a, int b) {
+            adjacent[a][count[a]++] = b;
+            adjacent[b][count[b]++] = a;
+        }
+
+        // Children of a node whose 1-tree has a city v of degree > 2, split on v's two
+        // cheapest free tree edges e1, e2: e1 excluded; e1 included, e2 excluded; both included
+        private List<Node> branch(Node node) {
+            int v = 0;
+            for (int i = 1; i < n; i++) {
+                if (node.degree[i] > node.degree[v]) v = i;
+            }
+            List<Integer> free = new ArrayList<>();
+            for (int u = 2; u < n; u++) {
+                if (u == v && node.fixed[u * n + node.parent[u]] == FREE) free.add(node.parent[u]);
+                else if (node.parent[u] == v && node.fixed[u * n + v] == FREE) free.add(u);
+            }
+            if (v == 0) {
+                if (node.fixed[node.zeroA] == FREE) free.add(node.zeroA);
+                if (node.fixed[node.zeroB] == FREE) free.add(node.zeroB);
+            } else if ((node.zeroA == v || node.zeroB == v) && node.fixed[v] == FREE) {
+                free.add(0);
+            }
+            final int city = v;
+            free.sort(Comparator.comparingDouble(u -> dist[city * n + u]));
+
+            List<Node> children = new ArrayList<>(3);
+            if (free.isEmpty()) return children;
+            int e1 = free.get(0);
+            addChild(children, node, city, e1, EXCLUDED, -1, FREE);
+            if (free.size() == 1) {
+                addChild(children, node, city, e1, INCLUDED, -1, FREE);
+            } else {
+                int e2 = free.get(1);
+                addChild(children, node, city, e1, INCLUDED, e2, EXCLUDED);
+                addChild(children, node, city, e1, INCLUDED, e2, INCLUDED);
+            }
+            return children;
+        }
+
+        private void addChild(List<Node> children, Node node, int v, int a, byte stateA, int b, byte stateB) {
+            byte[] fixed = node.fixed.clone();
+            set(fixed, v, a, stateA);
+            if (b >= 0) set(fixed, v, b, stateB);
+            if (propagate(fixed)) children.add(new Node(fixed, node.pi));
+        }
+
+        private void set(byte[] fixed, int i, int j, byte state) {
+            fixed[i * n + j] = state;
+            fixed[j * n + i] = state;
+        }
+
+        // Forces the edge states every tour in the node must have: a city with two
+        // included edges excludes the rest, a city with only two edges left includes them,
+        // and an edge closing a path of included edges early is excluded. False if no
+        // tour is left.
+        private boolean propagate(byte[] fixed) {
+            boolean[] onPath = new boolean[n];
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int v = 0; v < n; v++) {
+                    int included = 0;
+                    int free = 0;
+                    for (int u = 0; u < n; u++) {
+                        if (fixed[v * n + u] == INCLUDED) included++;
+                        else if (fixed[v * n + u] == FREE) free++;
+                    }
+                    if (included > 2 || included + free < 2) return false;
+                    if (free > 0 && (included == 2 || included + free == 2)) {
+                        byte state = included == 2 ? EXCLUDED : INCLUDED;
+                        for (int u = 0; u < n; u++) {
+                            if (fixed[v * n + u] == FREE) set(fixed, v, u, state);
+                        }
+                        changed = true;
+                    }
+                }
+                if (changed) continue;
+
+                // Follow every path of included edges from one end to the other
+                Arrays.fill(onPath, false);
+                for (int v = 0; v < n; v++) {
+                    if (onPath[v] || includedDegree(fixed, v) != 1) continue;
+                    int previous = -1;
+                    int city = v;
+                    int length = 1;
+                    onPath[v] = true;
+                    while (true) {
+                        int next = -1;
+                        for (int u = 0; u < n; u++) {
+                            if (u != previous && fixed[city * n + u] == INCLUDED) next = u;
+                        }
+                        if (next < 0) break;
+                        previous = city;
+                        city = next;
+                        onPath[city] = true;
+                        length++;
+                    }
+                    if (length < n && fixed[v * n + city] == FREE) {
+                        set(fixed, v, city, EXCLUDED);
+                        changed = true;
+                    }
+                }
+                // Cities with two included edges that no path reached lie on a cycle
+                int inCycles = 0;
+                for (int v = 0; v < n; v++) {
+                    if (!onPath[v] && includedDegree(fixed, v) == 2) inCycles++;
+                }
+                if (inCycles > 0 && inCycles < n) return false;
+            }
+            return true;
+        }
+
+        private int includedDegree(byte[] fixed, int v) {
+            int count = 0;
+            for (int u = 0; u < n; u++) {
+                if (fixed[v * n + u] == INCLUDED) count++;
+            }
+            return count;
+        }
+
+        private double length(int[] tour) {
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                total += dist[tour[i] * n + tour[(i + 1) % n]];
+            }
+            return total;
+        }
+    }
+
+    // Largest of 1, 0.1, 0.01, 0.001 that every finite distance is a multiple of, or 0
+    private static double commonUnit(double[] dist) {
+        for (double unit = 1; unit >= 0.001; unit /= 10) {
+            boolean all = true;
+            for (double d : dist) {
+                if (d >= DistanceMatrix.INF) continue;
+                double units = d / unit;
+                if (Math.abs(units - Math.rint(units)) > 1e-6) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) return unit;
+        }
+        return 0;
+    }
+
+    private static double[] copy(DistanceMatrix distanceMatrix) {
+        int n = distanceMatrix.size();
+        double[] dist = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                dist[i * n + j] = distanceMatrix.get(i, j);
+            }
+        }
+        return dist;
+    }
+
+    private static List<Integer> toList(int[] tour) {
+        List<Integer> list = new ArrayList<>(tour.length);
+        for (int city : tour) list.add(city);
+        return list;
+    }
+
+    public static void main(String[] args) {
+        // Arguments: number of cities, file (any format TSPLoader reads), workers, time limit in ms,
+        // seed, and DIRECTED to read an edge list as one-way distances
+        try {
+            int maxCities = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+            String filePath = args.length > 1 ? args[1] : "DistanceBetweenEuropeanCities.csv";
+            int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            long timeLimitMillis = args.length > 3 ? Long.parseLong(args[3]) : 0;
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+            boolean directed = args.length > 5 && args[5].equalsIgnoreCase("DIRECTED");
+
+            TSPInstance instance = TSPLoader.load(filePath, maxCities, DistanceMatrix.Storage.FLAT, directed);
+            DistanceMatrix distanceMatrix = instance.getDistanceMatrix();
+            int n = distanceMatrix.size();
+
+            // Heuristic tours: Lin-Kernighan from every start city, as LinKernighanTSP runs it
+            long startTime = System.nanoTime();
+            int[][] neighbors = LocalSearchEngine.buildNeighborLists(distanceMatrix, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+            MultiStartSolver.Result heuristic = new MultiStartSolver(workers, seed).solve(n,
+                    () -> new LocalSearchEngine(distanceMatrix, neighbors),
+                    (startCity, random, engine) -> LinKernighanTSP.linKernighan(engine,
+                            LinKernighanTSP.generateInitialTour(n, startCity, random)),
+                    tour -> LinKernighanTSP.calculateTourDistance(distanceMatrix, tour));
+            double heuristicTime = (System.nanoTime() - startTime) / 1_000_000.0;
+            if (heuristic.bestDistance() == Double.POSITIVE_INFINITY) {
+                System.out.println("No tour: some cities cannot be reached from others");
+                return;
+            }
+
+            Result exact = solve(distanceMatrix, heuristic.bestTour(), workers,
+                    timeLimitMillis > 0 ? SolveBudget.ofMillis(timeLimitMillis) : null);
+
+            double meanGap = 0;
+            for (double distance : heuristic.distances) meanGap += exact.gap(distance) / n;
+            System.out.println("Cities: " + n);
+            System.out.printf("Heuristic Distance: %.2f (best of %d starts, %.2f ms)%n", heuristic.bestDistance(), n, heuristicTime);
+            System.out.printf("%s Distance: %.2f (%s, %s, %d %s, %.2f ms)%n",
+                    exact.optimal ? "Optimal" : "Best Known", LinKernighanTSP.roundToTwoDecimals(exact.length),
+                    exact.optimal ? "proven" : String.format("lower bound %.2f", exact.lowerBound),
+                    n <= HELD_KARP_MAX_CITIES ? "Held-Karp" : "branch and bound",
+                    exact.nodes, n <= HELD_KARP_MAX_CITIES ? "states" : "nodes", exact.elapsedMillis);
+            System.out.printf("Optimality Gap: %.3f%% best start, %.3f%% mean start%s%n",
+                    100 * exact.gap(heuristic.bestDistance()), 100 * meanGap, exact.optimal ? "" : " (at most)");
+            System.out.println(exact.optimal ? "\nOptimal Tour:" : "\nBest Known Tour:");
+            LinKernighanTSP.printTourWithCityNames(exact.tour, instance.getCityNames());
+        } catch (IOException e) {
+            System.err.println("Error reading the file: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java ExactSolver [cities] [file] [workers] [timeLimitMs] [seed] [DIRECTED]");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.*;
+
+// Iterated Local Search (chained local search) on top of LocalSearchEngine
+// Instead of restarting from a fresh tour, the current local optimum is perturbed by
+// a double-bridge kick (a move 2-opt and Or-opt cannot undo in one step) and only the
+// cities around the kick are queued for the local search, so each iteration costs
+// about as much as the kick's neighborhood rather than a full descent. Rejected
+// iterations are rolled back from the engine's reversal journal.
+public class IteratedLocalSearch {
+    public enum Acceptance {
+        // Keep a kicked tour only if it is shorter than the current one
+        BETTER,
+        // Also keep equally long tours, which lets the search drift across plateaus
+        BETTER_OR_EQUAL,
+        // Keep tours at most threshold (a fraction) longer than the best tour so far
+        THRESHOLD,
+        // Keep every kicked tour; the best tour seen is still the one returned
+        RANDOM_WALK
+    }
+
+    // Longest segment moved by a kick; short segments keep the kick and its repair local
+    private static final int MAX_KICK_SEGMENT = 50;
+    // Smallest tour that has room for a kick
+    private static final int MIN_CITIES = 8;
+    private static final double IMPROVEMENT_EPSILON = 1e-9;
+    // Kicks between checks whether an unreported best tour is due to be reported
+    private static final int REPORT_CHECK_INTERVAL = 64;
+
+    // Receives new best tours during optimize; the array is only valid during the call
+    public interface ImprovementListener {
+        void onImprovement(int[] tour, double length);
+    }
+
+    private final LocalSearchEngine engine;
+    private final Acceptance acceptance;
+    private final double threshold;
+    private ImprovementListener listener;
+    private long reportIntervalNanos;
+
+    // Statistics of the last optimize call
+    private long kicks;
+    private long acceptedKicks;
+
+    public IteratedLocalSearch(LocalSearchEngine engine) {
+        this(engine, Acceptance.BETTER, 0);
+    }
+
+    public IteratedLocalSearch(LocalSearchEngine engine, Acceptance acceptance, double threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Acceptance threshold must not be negative");
+        }
+        this.engine = engine;
+        this.acceptance = acceptance;
+        this.threshold = threshold;
+    }
+
+    public LocalSearchEngine getEngine() {
+        return engine;
+    }
+
+    // Reports the best tour at most once per interval while kicks keep improving it;
+    // a null listener turns reporting off
+    public void setImprovementListener(ImprovementListener listener, long intervalMillis) {
+        this.listener = listener;
+        this.reportIntervalNanos = intervalMillis * 1_000_000L;
+    }
+
+    // Improves the tour in place: a full local search, then up to maxKicks kicks while
+    // the budget (may be null) lasts. The tour ends as the best tour found; returns its length.
+    public double optimize(int[] tour, Random random, long maxKicks, SolveBudget budget) {
+        int n = tour.length;
+        kicks = 0;
+        acceptedKicks = 0;
+        engine.optimize(tour, budget);
+        if (n < MIN_CITIES) return length(tour);
+
+        double current = length(tour);
+        double bestLength = current;
+        // Only acceptance rules that may keep a worse tour need a separate best copy
+        int[] best = acceptance == Acceptance.THRESHOLD || acceptance == Acceptance.RANDOM_WALK ? tour.clone() : null;
+        int maxSegment = Math.min(MAX_KICK_SEGMENT, (n - 2) / 2);
+        boolean unreported = false;
+        long lastReport = System.nanoTime();
+
+        engine.attach(tour);
+        for (long k = 0; k < maxKicks && (budget == null || !budget.isExhausted()); k++) {
+            engine.commit();
+            int p = random.nextInt(n);
+            int length1 = 1 + random.nextInt(maxSegment);
+            int length2 = 1 + random.nextInt(maxSegment);
+            double candidate = current + engine.doubleBridge(p, length1, length2);
+            candidate -= engine.improve(budget);
+            kicks++;
+
+            if (accept(candidate, current, bestLength)) {
+                acceptedKicks++;
+                current = candidate;
+                if (current < bestLength - IMPROVEMENT_EPSILON) {
+                    bestLength = current;
+                    if (best != null) System.arraycopy(tour, 0, best, 0, n);
+                    unreported = listener != null;
+                }
+            } else {
+                engine.rollback();
+            }
+            if (unreported && (k & (REPORT_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - lastReport >= reportIntervalNanos) {
+                listener.onImprovement(best != null ? best : tour, bestLength);
+                unreported = false;
+                lastReport = System.nanoTime();
+            }
+        }
+        engine.detach();
+
+        if (best != null) System.arraycopy(best, 0, tour, 0, n);
+        return length(tour);
+    }
+
+    public long getKicks() {
+        return kicks;
+    }
+
+    public long getAcceptedKicks() {
+        return acceptedKicks;
+    }
+
+    private boolean accept(double candidate, double current, double bestLength) {
+        switch (acceptance) {
+            case BETTER:
+                return candidate < current - IMPROVEMENT_EPSILON;
+            case BETTER_OR_EQUAL:
+                return candidate <= current + IMPROVEMENT_EPSILON;
+            case THRESHOLD:
+                return candidate <= bestLength * (1 + threshold) + IMPROVEMENT_EPSILON;
+            default:
+                return true;
+        }
+    }
+
+    private double length(int[] tour) {
+        DistanceMatrix distanceMatrix = engine.getDistanceMatrix();
+        double total = 0;
+        for (int i = 0; i < tour.length; i++) {
+            total += distanceMatrix.get(tour[i], tour[i + 1 == tour.length ? 0 : i + 1]);
+        }
+        return total;
+    }
+}
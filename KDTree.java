@@ -0,0 +1,210 @@
+import java.util.*;
+
+// Static k-d tree over city points (2D plane or 3D unit sphere), stored implicitly:
+// the subtree over order[lo, hi) has its root at mid = (lo + hi) >>> 1, split on
+// splitDimension[mid]. The layout is immutable and shared; deletions for incremental
+// nearest-neighbor construction live in a per-worker Search.
+public final class KDTree {
+    private final double[][] points; // points[dimension][city]
+    private final int dimensions;
+    private final int[] order;
+    private final int[] orderIndex;
+    private final byte[] splitDimension;
+
+    public KDTree(double[][] points) {
+        this.points = points;
+        this.dimensions = points.length;
+        int n = points[0].length;
+        this.order = new int[n];
+        this.orderIndex = new int[n];
+        this.splitDimension = new byte[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        build(0, n);
+        for (int i = 0; i < n; i++) orderIndex[order[i]] = i;
+    }
+
+    // Tree over the spatial coordinates of a coordinate instance
+    public static KDTree of(CoordinateDistanceMatrix matrix) {
+        return new KDTree(matrix.spatialCoordinates());
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    private void build(int lo, int hi) {
+        while (hi - lo > 1) {
+            // Split on the dimension with the widest spread
+            int bestDimension = 0;
+            double bestSpread = -1;
+            for (int d = 0; d < dimensions; d++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                double[] coordinate = points[d];
+                for (int i = lo; i < hi; i++) {
+                    double v = coordinate[order[i]];
+                    if (v < min) min = v;
+                    if (v > max) max = v;
+                }
+                if (max - min > bestSpread) {
+                    bestSpread = max - min;
+                    bestDimension = d;
+                }
+            }
+            int mid = (lo + hi) >>> 1;
+            splitDimension[mid] = (byte) bestDimension;
+            select(points[bestDimension], lo, hi - 1, mid);
+            build(lo, mid);
+            lo = mid + 1;
+        }
+    }
+
+    // Quickselect: places the k-th smallest of order[lo..hi] (by coordinate) at k
+    private void select(double[] coordinate, int lo, int hi, int k) {
+        while (hi > lo) {
+            double pivot = coordinate[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate[order[i]] < pivot) i++;
+                while (coordinate[order[j]] > pivot) j--;
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private double squaredDistance(int a, int b) {
+        double sum = 0;
+        for (int d = 0; d < dimensions; d++) {
+            double delta = points[d][a] - points[d][b];
+            sum += delta * delta;
+        }
+        return sum;
+    }
+
+    // The k cities closest to city (excluding itself), closest first by embedded distance
+    public int[] nearest(int city, int k) {
+        k = Math.min(k, order.length - 1);
+        int[] result = new int[k];
+        double[] resultDistances = new double[k];
+        int size = nearest(city, 0, order.length, result, resultDistances, 0);
+        return size == k ? result : Arrays.copyOf(result, size);
+    }
+
+    // Bounded sorted insertion search; returns the number of results held
+    private int nearest(int city, int lo, int hi, int[] result, double[] resultDistances, int size) {
+        if (lo >= hi) return size;
+        int k = result.length;
+        int mid = (lo + hi) >>> 1;
+        int node = order[mid];
+
+        if (node != city) {
+            double distance = squaredDistance(city, node);
+            if (size < k || distance < resultDistances[k - 1]) {
+                int slot = size < k ? size++ : k - 1;
+                while (slot > 0 && resultDistances[slot - 1] > distance) {
+                    resultDistances[slot] = resultDistances[slot - 1];
+                    result[slot] = result[slot - 1];
+                    slot--;
+                }
+                resultDistances[slot] = distance;
+                result[slot] = node;
+            }
+        }
+
+        int d = splitDimension[mid];
+        double delta = points[d][city] - points[d][node];
+        boolean leftFirst = delta < 0;
+        size = leftFirst ? nearest(city, lo, mid, result, resultDistances, size)
+                         : nearest(city, mid + 1, hi, result, resultDistances, size);
+        if (size < k || delta * delta < resultDistances[k - 1]) {
+            size = leftFirst ? nearest(city, mid + 1, hi, result, resultDistances, size)
+                             : nearest(city, lo, mid, result, resultDistances, size);
+        }
+        return size;
+    }
+
+    // Mutable deletion state over a shared tree, for one worker at a time
+    public final class Search {
+        // Live cities per subtree, indexed by the subtree root's position
+        private final int[] alive = new int[order.length];
+        private final boolean[] deleted = new boolean[order.length];
+        private int bestCity;
+        private double bestDistance;
+
+        public Search() {
+            reset();
+        }
+
+        // Marks every city live again
+        public void reset() {
+            Arrays.fill(deleted, false);
+            countAlive(0, order.length);
+        }
+
+        private void countAlive(int lo, int hi) {
+            if (lo >= hi) return;
+            int mid = (lo + hi) >>> 1;
+            alive[mid] = hi - lo;
+            countAlive(lo, mid);
+            countAlive(mid + 1, hi);
+        }
+
+        public void delete(int city) {
+            if (deleted[city]) return;
+            deleted[city] = true;
+            int target = orderIndex[city];
+            int lo = 0;
+            int hi = order.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                alive[mid]--;
+                if (target == mid) return;
+                if (target < mid) hi = mid;
+                else lo = mid + 1;
+            }
+        }
+
+        // Closest live city to the given city, or -1 when none is left
+        public int nearest(int city) {
+            bestCity = -1;
+            bestDistance = Double.POSITIVE_INFINITY;
+            search(city, 0, order.length);
+            return bestCity;
+        }
+
+        private void search(int city, int lo, int hi) {
+            if (lo >= hi) return;
+            int mid = (lo + hi) >>> 1;
+            if (alive[mid] == 0) return;
+            int node = order[mid];
+
+            if (!deleted[node] && node != city) {
+                double distance = squaredDistance(city, node);
+                if (distance < bestDistance || (distance == bestDistance && node < bestCity)) {
+                    bestDistance = distance;
+                    bestCity = node;
+                }
+            }
+
+            int d = splitDimension[mid];
+            double delta = points[d][city] - points[d][node];
+            boolean leftFirst = delta < 0;
+            if (leftFirst) search(city, lo, mid);
+            else search(city, mid + 1, hi);
+            if (delta * delta <= bestDistance) {
+                if (leftFirst) search(city, mid + 1, hi);
+                else search(city, lo, mid);
+            }
+        }
+    }
+}
@@ -1,89 +1,36 @@
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 
 public class LinKernighanTSP {
-    private static final double INF = Double.MAX_VALUE;
+    // Least time between two partial tours reported from one anytime start
+    private static final long PARTIAL_REPORT_INTERVAL_MILLIS = 1000;
 
-    // CSV file reader. Returns distance matrix and city names, limited to MAX_CITIES
-    public static Map<String, Object> readCSV(String filePath, int maxCities) throws IOException {
-        List<String> cityNames = new ArrayList<>();
-        Map<String, Integer> cityIndexMap = new HashMap<>();
-        String line;
-    
-        // Parse the file and build the city list and distance map
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            line = br.readLine(); // Read the header
-            if (line == null || !line.trim().equalsIgnoreCase("City1,City2,Distance(km)")) {
-                throw new IOException("CSV file must have header: City1,City2,Distance(km)");
-            }
-    
-            while ((line = br.readLine()) != null) {
-                if (cityNames.size() >= maxCities) break; // Stop reading beyond the limit
-    
-                String[] parts = line.split(",");
-                if (parts.length != 3) {
-                    throw new IOException("Invalid row format: " + line);
-                }
-    
-                String city1 = parts[0].trim();
-                String city2 = parts[1].trim();
-                double distance = Double.parseDouble(parts[2].trim());
-    
-                // Add cities to the city list and map if they're within the limit
-                if (cityNames.size() < maxCities && !cityIndexMap.containsKey(city1)) {
-                    cityIndexMap.put(city1, cityNames.size());
-                    cityNames.add(city1);
-                }
-                if (cityNames.size() < maxCities && !cityIndexMap.containsKey(city2)) {
-                    cityIndexMap.put(city2, cityNames.size());
-                    cityNames.add(city2);
-                }
-            }
-        }
-    
-        // Initialize distance matrix for limited cities
-        int n = cityNames.size();
-        double[][] distanceMatrix = new double[n][n];
-        for (int i = 0; i < n; i++) {
-            Arrays.fill(distanceMatrix[i], INF);
-            distanceMatrix[i][i] = 0; // Distance to self is 0
-        }
-    
-        // Re-read file to populate the distance matrix
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            br.readLine(); // Skip header
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                String city1 = parts[0].trim();
-                String city2 = parts[1].trim();
-                double distance = Double.parseDouble(parts[2].trim());
-    
-                if (cityIndexMap.containsKey(city1) && cityIndexMap.containsKey(city2)) {
-                    int index1 = cityIndexMap.get(city1);
-                    int index2 = cityIndexMap.get(city2);
-    
-                    // Populate symmetric distance matrix
-                    distanceMatrix[index1][index2] = distance;
-                    distanceMatrix[index2][index1] = distance;
-                }
-            }
-        }
-    
-        // Prepare results
-        Map<String, Object> result = new HashMap<>();
-        result.put("cityNames", cityNames);
-        result.put("distanceMatrix", distanceMatrix);
-    
-        return result;
+    // CSV file reader. Returns city names and distance matrix, limited to maxCities
+    // (single pass, shared with NearestNeighborTSP1 through TSPLoader)
+    public static TSPInstance readCSV(String filePath, int maxCities) throws IOException {
+        return TSPLoader.readCSV(filePath, maxCities);
     }
 
     // Total distance of the tour
-    public static double calculateTourDistance(double[][] distanceMatrix, List<Integer> tour) {
+    public static double calculateTourDistance(DistanceMatrix distanceMatrix, List<Integer> tour) {
+        SolverMetrics.Phase phase = SolverMetrics.phase("tourDistance");
+        try {
+            return sumTourDistance(distanceMatrix, tour);
+        } finally {
+            phase.close();
+        }
+    }
+
+    // A tour over a missing pair (INF) is infinitely long, rather than an overflowed sum
+    private static double sumTourDistance(DistanceMatrix distanceMatrix, List<Integer> tour) {
         double totalDistance = 0;
-        for (int i = 0; i < tour.size() - 1; i++) {
-            totalDistance += distanceMatrix[tour.get(i)][tour.get(i + 1)];
+        int n = tour.size();
+        for (int i = 0; i < n; i++) {
+            double distance = distanceMatrix.get(tour.get(i), tour.get(i + 1 == n ? 0 : i + 1));
+            if (distance >= DistanceMatrix.INF) return Double.POSITIVE_INFINITY;
+            totalDistance += distance;
         }
-        totalDistance += distanceMatrix[tour.get(tour.size() - 1)][tour.get(0)];
         return roundToTwoDecimals(totalDistance);
     }
 
@@ -103,34 +50,82 @@ public class LinKernighanTSP {
     }
 
     // Lin-Kernighan Heuristic
-    public static List<Integer> linKernighan(double[][] distanceMatrix, List<Integer> initialTour) {
-        int n = distanceMatrix.length;
-        List<Integer> currentTour = new ArrayList<>(initialTour);
-        double currentDistance = calculateTourDistance(distanceMatrix, currentTour);
-
-        boolean improved;
-        do {
-            improved = false;
-
-            for (int i = 1; i < n - 1; i++) {
-                for (int j = i + 1; j < n; j++) {
-                    List<Integer> newTour = twoOptSwap(currentTour, i, j);
-                    double newDistance = calculateTourDistance(distanceMatrix, newTour);
-
-                    if (newDistance < currentDistance) {
-                        currentTour = newTour;
-                        currentDistance = newDistance;
-                        improved = true;
-                    }
-                }
-            }
-        } while (improved);
+    // Delegates to LocalSearchEngine (2-opt + Or-opt over neighbor lists with don't-look bits)
+    // and returns the tour rotated so that it still begins with the initial start city
+    public static List<Integer> linKernighan(DistanceMatrix distanceMatrix, List<Integer> initialTour) {
+        LocalSearchEngine engine = new LocalSearchEngine(distanceMatrix, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+        return linKernighan(engine, initialTour);
+    }
+
+    // Same as above, reusing an engine (and its neighbor lists) across many tours
+    public static List<Integer> linKernighan(LocalSearchEngine engine, List<Integer> initialTour) {
+        int n = initialTour.size();
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) {
+            tour[i] = initialTour.get(i);
+        }
 
-        return currentTour;
+        engine.optimize(tour);
+
+        // The engine's position index finds the start city without scanning the tour
+        return rotate(tour, engine.positionOf(initialTour.get(0)));
+    }
+
+    // Anytime variant: stops improving once the budget is exhausted and returns the
+    // best tour reached so far (the local search only ever makes the tour shorter)
+    public static List<Integer> linKernighan(LocalSearchEngine engine, List<Integer> initialTour, SolveBudget budget) {
+        int n = initialTour.size();
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) {
+            tour[i] = initialTour.get(i);
+        }
+
+        engine.optimize(tour, budget);
+
+        return rotate(tour, engine.positionOf(initialTour.get(0)));
+    }
+
+    // Iterated Local Search: the local search above, then up to maxKicks double-bridge kicks
+    // (each re-optimized around the kick) while the budget, which may be null, lasts
+    public static List<Integer> iteratedLinKernighan(IteratedLocalSearch search, List<Integer> initialTour, Random random,
+                                                     long maxKicks, SolveBudget budget) {
+        int n = initialTour.size();
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) {
+            tour[i] = initialTour.get(i);
+        }
+
+        search.optimize(tour, random, maxKicks, budget);
+
+        return toList(tour, initialTour.get(0));
+    }
+
+    // Converts an array tour to a list starting at startCity
+    public static List<Integer> toList(int[] tour, int startCity) {
+        int offset = 0;
+        while (tour[offset] != startCity) {
+            offset++;
+        }
+        return rotate(tour, offset);
+    }
+
+    // Converts an array tour to a list starting at tour[offset]
+    private static List<Integer> rotate(int[] tour, int offset) {
+        int n = tour.length;
+        List<Integer> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(tour[(offset + i) % n]);
+        }
+        return result;
     }
 
     // Generates initial tour starting from specific city
     public static List<Integer> generateInitialTour(int n, int startCity) {
+        return generateInitialTour(n, startCity, new Random());
+    }
+
+    // Same as above with a caller-supplied Random, so seeded runs are reproducible
+    public static List<Integer> generateInitialTour(int n, int startCity, Random random) {
         List<Integer> tour = new ArrayList<>();
         tour.add(startCity); // Fixes starting city
         for (int i = 0; i < n; i++) {
@@ -138,7 +133,7 @@ public class LinKernighanTSP {
                 tour.add(i);
             }
         }
-        Collections.shuffle(tour.subList(1, tour.size())); // Shuffles remaining cities
+        Collections.shuffle(tour.subList(1, tour.size()), random); // Shuffles remaining cities
         return tour;
     }
 
@@ -150,65 +145,154 @@ public class LinKernighanTSP {
         System.out.println(cityNames.get(tour.get(0))); // Returns to start
     }
     public static void main(String[] args) {
-        // File path to CSV file
-        String filePath = "DistanceBetweenEuropeanCities.csv";
+        // File path to CSV file (optional fourth argument: .csv edge list, coordinate .csv or TSPLIB .tsp)
+        String filePath = args.length > 3 ? args[3] : "DistanceBetweenEuropeanCities.csv";
         
+        // -Dtsp.metrics=true collects phase timers and move counters, printed at the end
+        SolverMetrics.InMemoryRegistry metrics = SolverMetrics.enableFromSystemProperty();
+
         try (Scanner scanner = new Scanner(System.in)) { // Auto-closes scanner
-            System.out.println("Enter the maximum number of cities to calculate (up to 50):");
+            System.out.println("Enter the maximum number of cities to calculate (at least 2; the whole file if it has fewer):");
             int maxCities = scanner.nextInt();
     
-            if (maxCities < 2 || maxCities > 50) {
-                System.err.println("Please enter a number between 2 and 50.");
+            // Any size: the engine and the loaders scale to large instances
+            if (maxCities < 2) {
+                System.err.println("Please enter a number of at least 2.");
                 return;
             }
     
+            // Optional arguments: number of worker threads, random seed, matrix storage, file,
+            // initial tour construction, objective (total length or Bottleneck TSP), a time
+            // limit in milliseconds, which switches to anytime solving, the number of
+            // Iterated Local Search kicks per start (0 runs a single local search), and a
+            // checkpoint file ("-" for none), which also switches to anytime solving: the best
+            // tour is saved to it periodically, and if it already exists the first start resumes
+            // from its tour while the others start afresh, and DIRECTED to read an edge list
+            // as one-way distances
+            int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+            long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+            DistanceMatrix.Storage storage = args.length > 2 ? DistanceMatrix.Storage.valueOf(args[2].toUpperCase()) : DistanceMatrix.Storage.FLAT;
+            TourConstruction.Method construction = args.length > 4 ? TourConstruction.Method.valueOf(args[4].toUpperCase()) : TourConstruction.Method.RANDOM;
+            TourObjective objective = args.length > 5 ? TourObjective.valueOf(args[5].toUpperCase()) : TourObjective.SUM;
+            long timeLimitMillis = args.length > 6 ? Long.parseLong(args[6]) : 0;
+            long kicks = args.length > 7 ? Long.parseLong(args[7]) : 0;
+            Path checkpointPath = args.length > 8 && !args[8].equals("-") ? Paths.get(args[8]) : null;
+            boolean directed = args.length > 9 && args[9].equalsIgnoreCase("DIRECTED");
+
             // Read data from CSV file, limited by user-specified maxCities
-            Map<String, Object> data = readCSV(filePath, maxCities);
-            List<String> cityNames = (List<String>) data.get("cityNames");
-            double[][] distanceMatrix = (double[][]) data.get("distanceMatrix");
+            TSPInstance instance = TSPLoader.load(filePath, maxCities, storage, directed);
+            List<String> cityNames = instance.getCityNames();
+            DistanceMatrix distanceMatrix = instance.getDistanceMatrix();
     
-            int n = distanceMatrix.length;
-            double bestDistance = INF;
-            List<Integer> bestTour = null;
-            int bestStartCity = -1;
+            int n = distanceMatrix.size();
     
             // Computation time begins
             long startTime = System.nanoTime();
     
-            // Tour optimization from each city
-            for (int startCity = 0; startCity < n; startCity++) {
-                List<Integer> initialTour = generateInitialTour(n, startCity);
-                System.out.println("\nStarting from " + cityNames.get(startCity));
-                System.out.println("Initial Tour:");
-                printTourWithCityNames(initialTour, cityNames);
-                double initialDistance = calculateTourDistance(distanceMatrix, initialTour);
-                System.out.println("\nInitial Distance: " + String.format("%.2f", initialDistance));
-    
-                List<Integer> optimizedTour = linKernighan(distanceMatrix, initialTour);
-                double optimizedDistance = calculateTourDistance(distanceMatrix, optimizedTour);
-    
-                System.out.println("\nOptimized Tour:");
-                printTourWithCityNames(optimizedTour, cityNames);
-                System.out.println("\nOptimized Distance: " + String.format("%.2f", optimizedDistance));
+            // Neighbor lists are built once; each worker thread gets its own engine around them,
+            // wrapped for Iterated Local Search
+            int[][] neighbors = LocalSearchEngine.buildNeighborLists(distanceMatrix, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+            TourConstruction.InitialTours initialTours = new TourConstruction.InitialTours(construction, distanceMatrix, neighbors);
+            // For the Bottleneck TSP each length-optimized tour is handed to the BTSP engine
+            BottleneckSolver bottleneckSolver = objective == TourObjective.BOTTLENECK ? new BottleneckSolver(distanceMatrix, neighbors) : null;
+
+            int bestStartCity;
+            List<Integer> bestTour;
+            double bestScore;
+            double elapsedTime;
+            if (timeLimitMillis > 0 || checkpointPath != null) {
+                // Anytime mode: starts run until the time limit, each new best tour is printed as it is found
+                SolveBudget budget = SolveBudget.ofMillis(timeLimitMillis);
+                long fingerprint = TSPBinaryFormat.fingerprint(cityNames);
+                TSPBinaryFormat.SavedTour resumed = checkpointPath != null && Files.exists(checkpointPath)
+                        ? TSPBinaryFormat.readTour(checkpointPath) : null;
+                if (resumed != null) {
+                    if (resumed.fingerprint != fingerprint || resumed.tour.length != n) {
+                        throw new IllegalArgumentException("Checkpoint " + checkpointPath + " was saved for a different instance");
+                    }
+                    System.out.printf("Resuming from %s: %.2f after %.2f ms%n", checkpointPath, resumed.score, resumed.elapsedMillis);
+                }
+                try (AnytimeSolver solver = new AnytimeSolver(workers, seed);
+                     Checkpointer checkpointer = checkpointPath == null ? null : new Checkpointer(checkpointPath, fingerprint,
+                             Checkpointer.DEFAULT_INTERVAL_MILLIS, resumed == null ? 0 : resumed.elapsedMillis)) {
+                    if (checkpointer != null) solver.addListener(checkpointer);
+                    solver.addListener(progress -> System.out.printf("Improved to %.2f from %s after %.2f ms (%d moves applied, %d evaluated)%n",
+                            progress.score, cityNames.get(progress.startCity), progress.elapsedMillis,
+                            progress.movesApplied, progress.movesEvaluated));
+                    AnytimeSolver.Result result = solver.solve(n,
+                            () -> new IteratedLocalSearch(new LocalSearchEngine(distanceMatrix, neighbors)),
+                            (startCity, random, search, startBudget) -> {
+                                // Only one start resumes; the rest still explore from their own starting tours
+                                List<Integer> initialTour = resumed != null && startCity == 0 ? resumed.tourFrom(startCity)
+                                                                                              : initialTours.tour(startCity, random);
+                                // Long kick sequences report their best tour along the way, so it gets checkpointed
+                                search.setImprovementListener((partial, length) -> {
+                                    List<Integer> partialTour = toList(partial, startCity);
+                                    solver.offerPartial(partialTour, objective.evaluate(distanceMatrix, partialTour), startCity, startBudget);
+                                }, PARTIAL_REPORT_INTERVAL_MILLIS);
+                                List<Integer> tour = kicks > 0 ? iteratedLinKernighan(search, initialTour, random, kicks, startBudget)
+                                                               : linKernighan(search.getEngine(), initialTour, startBudget);
+                                return bottleneckSolver == null ? tour : bottleneckSolver.solve(tour, startBudget).tour;
+                            },
+                            tour -> objective.evaluate(distanceMatrix, tour),
+                            budget);
+                    elapsedTime = (System.nanoTime() - startTime) / 1_000_000.0;
+                    System.out.println("\nStarts Completed: " + result.startsCompleted + " of " + n
+                            + (result.budgetExhausted ? " (time limit reached)" : ""));
+                    bestStartCity = result.bestStartCity;
+                    bestTour = result.bestTour;
+                    bestScore = result.bestScore;
+                }
+            } else {
+                // Tour optimization from each city, in parallel
+                MultiStartSolver solver = new MultiStartSolver(workers, seed);
+                MultiStartSolver.Result result = solver.solve(n,
+                        () -> new IteratedLocalSearch(new LocalSearchEngine(distanceMatrix, neighbors)),
+                        (startCity, random, search) -> {
+                            List<Integer> initialTour = initialTours.tour(startCity, random);
+                            List<Integer> tour = kicks > 0 ? iteratedLinKernighan(search, initialTour, random, kicks, null)
+                                                           : linKernighan(search.getEngine(), initialTour);
+                            return bottleneckSolver == null ? tour : bottleneckSolver.solve(tour).tour;
+                        },
+                        tour -> objective.evaluate(distanceMatrix, tour));
+        
+                // Computation time ends
+                long endTime = System.nanoTime();
+        
+                // Elapsed time in milliseconds
+                elapsedTime = (endTime - startTime) / 1_000_000.0;
     
-                // Update the best tour if this one is better
-                if (optimizedDistance < bestDistance) {
-                    bestDistance = optimizedDistance;
-                    bestTour = optimizedTour;
-                    bestStartCity = startCity;
+                for (int startCity = 0; startCity < n; startCity++) {
+                    // Same seed as the worker used, so this is the exact tour it started from
+                    Random random = new Random(MultiStartSolver.startSeed(seed, startCity));
+                    List<Integer> initialTour = initialTours.tour(startCity, random);
+                    System.out.println("\nStarting from " + cityNames.get(startCity));
+                    System.out.println("Initial Tour:");
+                    printTourWithCityNames(initialTour, cityNames);
+                    double initialDistance = calculateTourDistance(distanceMatrix, initialTour);
+                    System.out.println("\nInitial Distance: " + String.format("%.2f", initialDistance));
+        
+                    System.out.println("\nOptimized Tour:");
+                    printTourWithCityNames(result.tours.get(startCity), cityNames);
+                    System.out.println("\nOptimized Distance: " + String.format("%.2f", calculateTourDistance(distanceMatrix, result.tours.get(startCity))));
+                    if (objective == TourObjective.BOTTLENECK) {
+                        System.out.println("Optimized Bottleneck: " + String.format("%.2f", result.distances[startCity]));
+                    }
                 }
+                bestStartCity = result.bestStartCity;
+                bestTour = result.bestTour();
+                bestScore = result.bestDistance();
             }
-    
-            // Computation time ends
-            long endTime = System.nanoTime();
-    
-            // Elapsed time in milliseconds
-            double elapsedTime = (endTime - startTime) / 1_000_000.0;
-    
+            double bestDistance = calculateTourDistance(distanceMatrix, bestTour);
+
             // Best overall tour
             System.out.println("\nBest Tour Starting from " + cityNames.get(bestStartCity) + ":");
             printTourWithCityNames(bestTour, cityNames);
             System.out.println("Best Distance: " + String.format("%.2f", bestDistance));
+            if (objective == TourObjective.BOTTLENECK) {
+                System.out.println("Best Bottleneck: " + String.format("%.2f", bestScore)
+                        + " (lower bound " + String.format("%.2f", bottleneckSolver.lowerBound()) + ")");
+            }
     
             // Time taken to calculate
             System.out.printf("\nComputation Time: %.2f milliseconds\n", elapsedTime);
@@ -220,10 +304,17 @@ public class LinKernighanTSP {
             System.out.println("User Name: " + System.getProperty("user.name"));
             System.out.println("Java Version: " + System.getProperty("java.version"));
             System.out.println("Java Vendor: " + System.getProperty("java.vendor"));
+            if (metrics != null) {
+                System.out.println("\nSolver Metrics:");
+                System.out.print(metrics.summary());
+            }
         } catch (IOException e) {
             System.err.println("Error reading the CSV file: " + e.getMessage());
         } catch (InputMismatchException e) {
-            System.err.println("Invalid input. Please enter a number between 2 and 50.");
+            System.err.println("Invalid input. Please enter a number of at least 2.");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java LinKernighanTSP [workers] [seed] [FLAT|TRIANGULAR|FLOAT|QUANTIZED|OFF_HEAP] [file] [RANDOM|NEAREST_NEIGHBOR|GREEDY_EDGE|SPACE_FILLING_CURVE] [SUM|BOTTLENECK] [timeLimitMs] [kicks] [checkpointFile|-] [DIRECTED]");
         }
     }
 }
@@ -0,0 +1,539 @@
+import java.util.*;
+
+// Local search engine behind LinKernighanTSP.linKernighan
+// Runs 2-opt and Or-opt (segment insertion, the "or2opt" 3-opt subset) moves over
+// k-nearest neighbor candidate lists, with don't-look bits so that each pass only
+// revisits cities whose surrounding edges changed recently.
+// The tour is a primitive array treated as a cycle; an engine instance keeps its
+// scratch buffers and can be reused for many tours of the same instance.
+// On directed matrices a reversed path changes length, so 2-opt is off and Or-opt only
+// moves segments forward, by block swaps that keep the direction of travel.
+public class LocalSearchEngine {
+    // Default size of the per-city candidate lists
+    public static final int DEFAULT_NEIGHBOR_COUNT = 10;
+    // Longest segment moved by an Or-opt move
+    private static final int MAX_SEGMENT_LENGTH = 3;
+    // Minimum gain for a move to count as an improvement (guards against float noise)
+    private static final double IMPROVEMENT_EPSILON = 1e-9;
+    // Queue steps, and applied moves, between two budget checks (powers of two); moves
+    // are counted separately because a single 2-opt reversal can cost O(n)
+    private static final int BUDGET_CHECK_INTERVAL = 64;
+    private static final int BUDGET_CHECK_MOVES = 16;
+
+    private final DistanceMatrix distanceMatrix;
+    private final int n;
+    private final int[][] neighbors;
+    private final boolean directed;
+
+    // Scratch buffers, reused across calls to optimize
+    private final int[] position;
+    private final boolean[] queued;
+    private final int[] queue;
+    private int queueHead;
+    private int queueSize;
+    private int[] tour;
+    // Length gained by the moves of the current improve call
+    private double gainedLength;
+    // Reversals since the last commit, as (first position, length) pairs
+    private int[] journal = new int[64];
+    private int journalSize;
+    private boolean journaling;
+
+    // Move counts of the current or last optimize call, and the part not yet reported
+    // to the budget
+    private long movesEvaluated;
+    private long movesApplied;
+    private long reportedEvaluated;
+    private long reportedApplied;
+    // Cities taken off the queue since attach, and when attach happened (for SolverMetrics)
+    private long citiesExamined;
+    private long attachNanos;
+
+    public LocalSearchEngine(DistanceMatrix distanceMatrix, int neighborCount) {
+        this(distanceMatrix, buildNeighborLists(distanceMatrix, neighborCount));
+    }
+
+    // Shares precomputed neighbor lists, e.g. between engines of parallel workers
+    public LocalSearchEngine(DistanceMatrix distanceMatrix, int[][] neighbors) {
+        this.distanceMatrix = distanceMatrix;
+        this.n = distanceMatrix.size();
+        this.neighbors = neighbors;
+        this.directed = distanceMatrix.isDirected();
+        this.position = new int[n];
+        this.queued = new boolean[n];
+        this.queue = new int[n];
+    }
+
+    // Builds the k nearest neighbors of every city, closest first (in either direction
+    // for directed matrices). Coordinate instances use a k-d tree (O(n log n)); matrices
+    // are scanned row by row
+    public static int[][] buildNeighborLists(DistanceMatrix distanceMatrix, int neighborCount) {
+        return buildNeighborLists(distanceMatrix, neighborCount, false);
+    }
+
+    // Same as above; with outgoing set, directed matrices rank neighbors by the distance
+    // leaving the city only, as nearest neighbor construction needs
+    static int[][] buildNeighborLists(DistanceMatrix distanceMatrix, int neighborCount, boolean outgoing) {
+        SolverMetrics.Phase phase = SolverMetrics.phase("neighborLists");
+        try {
+            return scanNeighborLists(distanceMatrix, neighborCount, outgoing);
+        } finally {
+            phase.close();
+        }
+    }
+
+    private static int[][] scanNeighborLists(DistanceMatrix distanceMatrix, int neighborCount, boolean outgoing) {
+        int n = distanceMatrix.size();
+        int k = Math.min(neighborCount, n - 1);
+        int[][] neighbors = new int[n][];
+        if (distanceMatrix instanceof CoordinateDistanceMatrix) {
+            KDTree tree = KDTree.of((CoordinateDistanceMatrix) distanceMatrix);
+            for (int city = 0; city < n; city++) {
+                neighbors[city] = sortByDistance(distanceMatrix, city, tree.nearest(city, k));
+            }
+            return neighbors;
+        }
+        double[] bestDistances = new double[k];
+        for (int city = 0; city < n; city++) {
+            int[] best = new int[k];
+            int size = 0;
+            for (int other = 0; other < n; other++) {
+                if (other == city) continue;
+                double distance = outgoing ? distanceMatrix.get(city, other) : candidateDistance(distanceMatrix, city, other);
+                if (size == k && distance >= bestDistances[k - 1]) continue;
+
+                // Insertion into the small sorted candidate array
+                int slot = size < k ? size++ : k - 1;
+                while (slot > 0 && bestDistances[slot - 1] > distance) {
+                    bestDistances[slot] = bestDistances[slot - 1];
+                    best[slot] = best[slot - 1];
+                    slot--;
+                }
+                bestDistances[slot] = distance;
+                best[slot] = other;
+            }
+            neighbors[city] = best;
+        }
+        return neighbors;
+    }
+
+    // Distance that ranks candidate neighbors: the shorter way between the two cities
+    static double candidateDistance(DistanceMatrix distanceMatrix, int city, int other) {
+        double distance = distanceMatrix.get(city, other);
+        return distanceMatrix.isDirected() ? Math.min(distance, distanceMatrix.get(other, city)) : distance;
+    }
+
+    // Insertion sort of a short candidate list by true distance from city
+    private static int[] sortByDistance(DistanceMatrix distanceMatrix, int city, int[] candidates) {
+        for (int i = 1; i < candidates.length; i++) {
+            int candidate = candidates[i];
+            double distance = distanceMatrix.get(city, candidate);
+            int j = i;
+            while (j > 0 && distanceMatrix.get(city, candidates[j - 1]) > distance) {
+                candidates[j] = candidates[j - 1];
+                j--;
+            }
+            candidates[j] = candidate;
+        }
+        return candidates;
+    }
+
+    public int[][] getNeighbors() {
+        return neighbors;
+    }
+
+    public DistanceMatrix getDistanceMatrix() {
+        return distanceMatrix;
+    }
+
+    // Index of city in the tour last optimized, kept in sync by every move
+    public int positionOf(int city) {
+        return position[city];
+    }
+
+    // Improves the tour in place until no 2-opt or Or-opt move improves it
+    public void optimize(int[] tour) {
+        optimize(tour, null);
+    }
+
+    // Same as above, but stops early once the budget is exhausted; the tour is then a
+    // valid, partly improved tour. Returns whether a local optimum was reached.
+    public boolean optimize(int[] tour, SolveBudget budget) {
+        attach(tour);
+        for (int city : tour) {
+            push(city);
+        }
+        boolean completed = run(budget);
+        detach();
+        return completed;
+    }
+
+    // Incremental use, for perturbation-based searches such as IteratedLocalSearch:
+    // attach a tour, perturb it, improve only around the queued cities and optionally
+    // roll back to the last commit, then detach.
+    void attach(int[] tour) {
+        attachNanos = System.nanoTime();
+        this.tour = tour;
+        citiesExamined = 0;
+        movesEvaluated = 0;
+        movesApplied = 0;
+        reportedEvaluated = 0;
+        reportedApplied = 0;
+        for (int i = 0; i < n; i++) {
+            position[tour[i]] = i;
+        }
+        queueHead = 0;
+        queueSize = 0;
+        Arrays.fill(queued, false);
+        journalSize = 0;
+    }
+
+    void detach() {
+        SolverMetrics.localSearch(n, citiesExamined, movesEvaluated, movesApplied, System.nanoTime() - attachNanos);
+        this.tour = null;
+        journaling = false;
+    }
+
+    // Marks a city for re-examination by the next improve call
+    void queue(int city) {
+        push(city);
+    }
+
+    // Runs the local search from the queued cities; returns the total length gained
+    double improve(SolveBudget budget) {
+        gainedLength = 0;
+        run(budget);
+        return gainedLength;
+    }
+
+    // Segment swap double bridge: with B the segment of length1 after position p and C
+    // the following segment of length2, "a B C d" becomes "a C B d". Queues the six
+    // endpoints and returns the change in tour length.
+    double doubleBridge(int p, int length1, int length2) {
+        DistanceMatrix d = distanceMatrix;
+        int a = tour[p];
+        int b1 = tour[(p + 1) % n];
+        int bEnd = tour[(p + length1) % n];
+        int c1 = tour[(p + length1 + 1) % n];
+        int cEnd = tour[(p + length1 + length2) % n];
+        int e = tour[(p + length1 + length2 + 1) % n];
+        double delta = d.get(a, c1) + d.get(cEnd, b1) + d.get(bEnd, e)
+                - d.get(a, b1) - d.get(bEnd, c1) - d.get(cEnd, e);
+
+        // Block swap by three reversals: BC -> C'B' -> CB
+        int first = (p + 1) % n;
+        reversePositions(first, length1 + length2);
+        reversePositions(first, length2);
+        reversePositions((first + length2) % n, length1);
+
+        push(a);
+        push(b1);
+        push(bEnd);
+        push(c1);
+        push(cEnd);
+        push(e);
+        return delta;
+    }
+
+    // Starts recording tour changes, so they can be undone by rollback
+    void commit() {
+        journaling = true;
+        journalSize = 0;
+    }
+
+    // Undoes every tour change since the last commit
+    void rollback() {
+        for (int k = journalSize - 2; k >= 0; k -= 2) {
+            swapRange(journal[k], journal[k + 1]);
+        }
+        journalSize = 0;
+        // Cities queued by an interrupted search belong to the discarded tour
+        while (queueSize > 0) {
+            queued[queue[queueHead]] = false;
+            queueHead = (queueHead + 1) % n;
+            queueSize--;
+        }
+    }
+
+    private boolean run(SolveBudget budget) {
+        int steps = 0;
+        while (queueSize > 0) {
+            if (budget != null && (++steps & (BUDGET_CHECK_INTERVAL - 1)) == 0 && report(budget)) {
+                return false;
+            }
+            int city = queue[queueHead];
+            queueHead = (queueHead + 1) % n;
+            queueSize--;
+            queued[city] = false;
+            citiesExamined++;
+
+            // Keep working on this city while it yields improving moves
+            while (directed ? improveDirectedOrOpt(city) : (improveTwoOpt(city) || improveOrOpt(city))) {
+                push(city);
+                if (budget != null && (movesApplied & (BUDGET_CHECK_MOVES - 1)) == 0 && report(budget)) {
+                    return false;
+                }
+            }
+        }
+        if (budget != null) report(budget);
+        return true;
+    }
+
+    // Candidate moves whose gain was computed during the last optimize call
+    public long getMovesEvaluated() {
+        return movesEvaluated;
+    }
+
+    // Improving moves applied during the last optimize call
+    public long getMovesApplied() {
+        return movesApplied;
+    }
+
+    // Hands the new move counts to the budget; returns whether it is exhausted
+    private boolean report(SolveBudget budget) {
+        budget.recordMoves(movesEvaluated - reportedEvaluated, movesApplied - reportedApplied);
+        reportedEvaluated = movesEvaluated;
+        reportedApplied = movesApplied;
+        return budget.isExhausted();
+    }
+
+    private boolean improveTwoOpt(int a) {
+        DistanceMatrix d = distanceMatrix;
+        for (int direction = 0; direction < 2; direction++) {
+            int b = direction == 0 ? next(a) : prev(a);
+            double removed = d.get(a, b);
+            for (int c : neighbors[a]) {
+                double added = d.get(a, c);
+                if (added >= removed) break; // Lists are sorted, no later candidate can gain
+                int e = direction == 0 ? next(c) : prev(c);
+                if (c == b || e == a || missing(d.get(b, e))) continue;
+
+                double gain = removed + d.get(c, e) - added - d.get(b, e);
+                movesEvaluated++;
+                if (gain > IMPROVEMENT_EPSILON) {
+                    movesApplied++;
+                    gainedLength += gain;
+                    if (direction == 0) {
+                        twoOptMove(a, b, c, e);
+                    } else {
+                        twoOptMove(b, a, e, c);
+                    }
+                    push(a);
+                    push(b);
+                    push(c);
+                    push(e);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Moves the segment starting at s1 (up to MAX_SEGMENT_LENGTH cities) between two
+    // neighboring cities elsewhere in the tour, optionally reversing it
+    private boolean improveOrOpt(int s1) {
+        DistanceMatrix d = distanceMatrix;
+        int se = s1;
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH && length < n - 2; length++) {
+            if (length > 1) se = next(se);
+            int p = prev(s1);
+            int nx = next(se);
+            if (missing(d.get(p, nx))) continue;
+            double removeGain = d.get(p, s1) + d.get(se, nx) - d.get(p, nx);
+            if (removeGain <= IMPROVEMENT_EPSILON) continue;
+
+            for (int end = 0; end < 2; end++) {
+                int anchor = end == 0 ? s1 : se;
+                for (int x : neighbors[anchor]) {
+                    if (d.get(anchor, x) >= removeGain) break;
+                    if (inSegment(x, s1, length)) continue;
+
+                    // Try inserting on either side of the neighbor
+                    for (int side = 0; side < 2; side++) {
+                        int c = side == 0 ? x : prev(x);
+                        int e = next(c);
+                        if (c == p || e == p || inSegment(c, s1, length) || inSegment(e, s1, length)) continue;
+
+                        double forward = d.get(c, s1) + d.get(se, e);
+                        double reversed = d.get(c, se) + d.get(s1, e);
+                        boolean keepOrientation = forward <= reversed;
+                        if (missing(keepOrientation ? forward : reversed)) continue;
+                        double gain = removeGain + d.get(c, e) - (keepOrientation ? forward : reversed);
+                        movesEvaluated++;
+                        if (gain > IMPROVEMENT_EPSILON) {
+                            movesApplied++;
+                            gainedLength += gain;
+                            orOptMove(p, s1, se, nx, c, e, keepOrientation);
+                            push(p);
+                            push(nx);
+                            push(s1);
+                            push(se);
+                            push(c);
+                            push(e);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Or-opt for directed matrices: moves the segment starting at s1 forward between c and
+    // e = next(c), so every edge keeps its direction, with candidates c close to s1
+    // (c -> s1 becomes an edge) or e close to se (se -> e becomes an edge)
+    private boolean improveDirectedOrOpt(int s1) {
+        DistanceMatrix d = distanceMatrix;
+        int se = s1;
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH && length < n - 2; length++) {
+            if (length > 1) se = next(se);
+            int p = prev(s1);
+            int nx = next(se);
+            if (missing(d.get(p, nx))) continue;
+            double removeGain = d.get(p, s1) + d.get(se, nx) - d.get(p, nx);
+            if (removeGain <= IMPROVEMENT_EPSILON) continue;
+
+            for (int end = 0; end < 2; end++) {
+                int anchor = end == 0 ? s1 : se;
+                for (int x : neighbors[anchor]) {
+                    if (candidateDistance(d, anchor, x) >= removeGain) break;
+                    int c = end == 0 ? x : prev(x);
+                    int e = next(c);
+                    if (c == p || inSegment(c, s1, length) || inSegment(e, s1, length)) continue;
+                    if (missing(d.get(c, s1)) || missing(d.get(se, e))) continue;
+
+                    double gain = removeGain + d.get(c, e) - d.get(c, s1) - d.get(se, e);
+                    movesEvaluated++;
+                    if (gain > IMPROVEMENT_EPSILON) {
+                        movesApplied++;
+                        gainedLength += gain;
+                        moveSegment(s1, length, c);
+                        push(p);
+                        push(nx);
+                        push(s1);
+                        push(se);
+                        push(c);
+                        push(e);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Moves the segment of the given length starting at s1 to just after c, without
+    // reversing anything: "S M" becomes "M S" (M runs from the segment to c) or "R S"
+    // becomes "S R" (R is the rest), whichever block swap moves fewer cities
+    private void moveSegment(int s1, int length, int c) {
+        int start = position[s1];
+        int between = position[c] - start - length + 1;
+        if (between < 0) between += n;
+        int rest = n - length - between;
+        if (between <= rest) {
+            swapBlocks(start, length, between);
+        } else {
+            int restStart = start - rest;
+            swapBlocks(restStart < 0 ? restStart + n : restStart, rest, length);
+        }
+    }
+
+    // Swaps the adjacent cyclic ranges of lengths first and second starting at position
+    // i by three reversals: AB -> B'A' -> BA
+    private void swapBlocks(int i, int first, int second) {
+        reversePositions(i, first + second);
+        reversePositions(i, second);
+        reversePositions((i + second) % n, first);
+    }
+
+    // Moves never add a missing pair (INF): sums with INF lose their finite part, so two
+    // such moves could undo each other forever
+    private static boolean missing(double distance) {
+        return distance >= DistanceMatrix.INF;
+    }
+
+    // Whether city lies in the segment of the given length starting at s1
+    private boolean inSegment(int city, int s1, int length) {
+        int offset = position[city] - position[s1];
+        if (offset < 0) offset += n;
+        return offset < length;
+    }
+
+    // Or-opt composed of 2-opt moves: p S nx .. c e  ->  p nx .. c S e
+    private void orOptMove(int p, int s1, int se, int nx, int c, int e, boolean keepOrientation) {
+        twoOptMove(p, s1, c, e);   // p c .. nx se .. s1 e
+        twoOptMove(p, c, nx, se);  // p nx .. c se .. s1 e
+        if (keepOrientation) {
+            twoOptMove(c, se, s1, e); // p nx .. c s1 .. se e
+        }
+    }
+
+    // Replaces edges (a,b) and (c,d) by (a,c) and (b,d), where b follows a and d follows c
+    // in the same walking direction; works whichever way the array currently runs
+    private void twoOptMove(int a, int b, int c, int d) {
+        if (next(a) == b) {
+            reverse(b, c);
+        } else {
+            reverse(c, b);
+        }
+    }
+
+    // Reverses the path from city 'from' forward to city 'to', or equivalently its
+    // complement, whichever is shorter
+    private void reverse(int from, int to) {
+        int i = position[from];
+        int j = position[to];
+        int length = j - i;
+        if (length < 0) length += n;
+        length++;
+        if (length * 2 > n) {
+            i = j + 1 == n ? 0 : j + 1;
+            length = n - length;
+        }
+        reversePositions(i, length);
+    }
+
+    // Reverses the cyclic array range of the given length starting at position i
+    private void reversePositions(int i, int length) {
+        if (length < 2) return;
+        if (journaling) {
+            if (journalSize == journal.length) journal = Arrays.copyOf(journal, 2 * journal.length);
+            journal[journalSize++] = i;
+            journal[journalSize++] = length;
+        }
+        swapRange(i, length);
+    }
+
+    private void swapRange(int i, int length) {
+        int j = i + length - 1;
+        if (j >= n) j -= n;
+        for (int swaps = length / 2; swaps > 0; swaps--) {
+            int ci = tour[i];
+            int cj = tour[j];
+            tour[i] = cj;
+            position[cj] = i;
+            tour[j] = ci;
+            position[ci] = j;
+            if (++i == n) i = 0;
+            if (--j < 0) j = n - 1;
+        }
+    }
+
+    private int next(int city) {
+        int p = position[city] + 1;
+        return tour[p == n ? 0 : p];
+    }
+
+    private int prev(int city) {
+        int p = position[city] - 1;
+        return tour[p < 0 ? n - 1 : p];
+    }
+
+    private void push(int city) {
+        if (queued[city]) return;
+        queued[city] = true;
+        int tail = queueHead + queueSize;
+        queue[tail >= n ? tail - n : tail] = city;
+        queueSize++;
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+// Runs one independent solve per start city on a ForkJoinPool
+// Every worker thread keeps its own scratch object (e.g. a LocalSearchEngine) for
+// all the starts it handles, every start gets its own seeded Random so results do not
+// depend on thread scheduling, and the best tour is reduced without locking.
+public class MultiStartSolver {
+    // Solves from one start city using the calling worker's scratch object
+    public interface StartTask<S> {
+        List<Integer> solve(int startCity, Random random, S scratch);
+    }
+
+    // Tours and distances of every start, plus the best one
+    public static class Result {
+        public final List<List<Integer>> tours;
+        public final double[] distances;
+        public final int bestStartCity;
+
+        Result(List<List<Integer>> tours, double[] distances, int bestStartCity) {
+            this.tours = tours;
+            this.distances = distances;
+            this.bestStartCity = bestStartCity;
+        }
+
+        public List<Integer> bestTour() {
+            return tours.get(bestStartCity);
+        }
+
+        public double bestDistance() {
+            return distances[bestStartCity];
+        }
+    }
+
+    private final int workers;
+    private final long seed;
+
+    public MultiStartSolver(int workers, long seed) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be at least 1");
+        }
+        this.workers = workers;
+        this.seed = seed;
+    }
+
+    // Reproducible per-start seed derived from the solver seed
+    public static long startSeed(long seed, int startCity) {
+        long z = seed + (startCity + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public <S> Result solve(int n, Supplier<S> scratchFactory, StartTask<S> task,
+                            ToDoubleFunction<List<Integer>> score) {
+        List<List<Integer>> tours = new ArrayList<>(Collections.nCopies(n, null));
+        double[] distances = new double[n];
+        // Start city of the best tour so far; ties resolve to the lowest start city, as the sequential loop did
+        AtomicInteger best = new AtomicInteger(-1);
+        ThreadLocal<S> scratch = ThreadLocal.withInitial(scratchFactory);
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            pool.invoke(new StartRange<>(0, n, task, score, scratch, tours, distances, best));
+        } finally {
+            pool.shutdown();
+        }
+        return new Result(tours, distances, best.get());
+    }
+
+    private class StartRange<S> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final StartTask<S> task;
+        private final ToDoubleFunction<List<Integer>> score;
+        private final ThreadLocal<S> scratch;
+        private final List<List<Integer>> tours;
+        private final double[] distances;
+        private final AtomicInteger best;
+
+        StartRange(int from, int to, StartTask<S> task, ToDoubleFunction<List<Integer>> score, ThreadLocal<S> scratch,
+                   List<List<Integer>> tours, double[] distances, AtomicInteger best) {
+            this.from = from;
+            this.to = to;
+            this.task = task;
+            this.score = score;
+            this.scratch = scratch;
+            this.tours = tours;
+            this.distances = distances;
+            this.best = best;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new StartRange<>(from, mid, task, score, scratch, tours, distances, best),
+                          new StartRange<>(mid, to, task, score, scratch, tours, distances, best));
+                return;
+            }
+
+            int startCity = from;
+            List<Integer> tour = task.solve(startCity, new Random(startSeed(seed, startCity)), scratch.get());
+            double distance = score.applyAsDouble(tour);
+            // Each slot is written by exactly one task; ForkJoin join publishes them to the caller
+            tours.set(startCity, tour);
+            distances[startCity] = distance;
+
+            // Lock-free reduction: strictly better, or equal with a lower start city
+            int current;
+            do {
+                current = best.get();
+                if (current >= 0 && (distances[current] < distance
+                        || (distances[current] == distance && current < startCity))) {
+                    return;
+                }
+            } while (!best.compareAndSet(current, startCity));
+        }
+    }
+}
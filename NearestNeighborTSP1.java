@@ -6,88 +6,10 @@ public class NearestNeighborTSP1 {
 
     // Reads a CSV file and returns city names and a distance matrix limited by maxCities
     // The CSV file should have a header with columns City1, City2, Distance(km)
-    // The file is read twice: first to get the list of city names and their indices,
-    // and second to fill in the distance matrix with the distances read from the file
-    public static Map<String, Object> readCSV(String filePath, int maxCities) throws IOException {
-        // List to store city names
-        List<String> cityNames = new ArrayList<>();
-        // Map to associate city names with their indices
-        Map<String, Integer> cityIndexMap = new HashMap<>();
-        String line; // Variable to hold each line read from the file
-
-        // Try-with-resources to ensure BufferedReader is closed after use
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            // Read the first line of the CSV file, which should be the header
-            line = br.readLine();
-            // Check if the header is present and correctly formatted
-            if (line == null || !line.trim().equalsIgnoreCase("City1,City2,Distance(km)")) {
-                throw new IOException("CSV file must have header: City1,City2,Distance(km)");
-            }
-
-            // Read the rest of the lines containing city pairs and distances
-            while ((line = br.readLine()) != null) {
-                // Stop reading if the maximum number of cities is reached
-                if (cityNames.size() >= maxCities) break;
-
-                // Split the line by commas to extract city names and distance
-                String[] parts = line.split(",");
-                // Ensure the line has exactly 3 parts: city1, city2, distance
-                if (parts.length != 3) {
-                    throw new IOException("Invalid row format: " + line);
-                }
-
-                // Trim any extra spaces around city names and parse the distance
-                String city1 = parts[0].trim();
-                String city2 = parts[1].trim();
-                double distance = Double.parseDouble(parts[2].trim());
-
-                // Add city1 to the list and map if it's not already present
-                if (cityNames.size() < maxCities && !cityIndexMap.containsKey(city1)) {
-                    cityIndexMap.put(city1, cityNames.size());
-                    cityNames.add(city1);
-                }
-                // Add city2 to the list and map if it's not already present
-                if (cityNames.size() < maxCities && !cityIndexMap.containsKey(city2)) {
-                    cityIndexMap.put(city2, cityNames.size());
-                    cityNames.add(city2);
-                }
-            }
-        }
-
-        // Get the number of cities added to the list
-        int n = cityNames.size();
-        // Initialize a distance matrix with default values of INF
-        double[][] distanceMatrix = new double[n][n];
-        for (int i = 0; i < n; i++) {
-            Arrays.fill(distanceMatrix[i], INF); // Fill each row with INF
-            distanceMatrix[i][i] = 0; // Distance from a city to itself is 0
-        }
-
-        // Re-read the file to fill in the distance matrix
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            br.readLine(); // Skip the header line
-            while ((line = br.readLine()) != null) {
-                // Split the line to get city names and distance
-                String[] parts = line.split(",");
-                String city1 = parts[0].trim();
-                String city2 = parts[1].trim();
-                double distance = Double.parseDouble(parts[2].trim());
-
-                // If both cities are in the map, update the distance matrix
-                if (cityIndexMap.containsKey(city1) && cityIndexMap.containsKey(city2)) {
-                    int index1 = cityIndexMap.get(city1);
-                    int index2 = cityIndexMap.get(city2);
-                    distanceMatrix[index1][index2] = distance;
-                    distanceMatrix[index2][index1] = distance; // Symmetric distance
-                }
-            }
-        }
-
-        // Prepare the result map containing city names and distance matrix
-        Map<String, Object> result = new HashMap<>();
-        result.put("cityNames", cityNames);
-        result.put("distanceMatrix", distanceMatrix);
-        return result; // Return the result map
+    // ("Distance (km)" is accepted too). The file is read once by the shared TSPLoader,
+    // which keeps the first maxCities cities in file order.
+    public static TSPInstance readCSV(String filePath, int maxCities) throws IOException {
+        return TSPLoader.readCSV(filePath, maxCities);
     }
 
     // Calculates the total distance of a given tour
@@ -99,14 +21,26 @@ public class NearestNeighborTSP1 {
     // city back to the first city to complete the loop.
     // Finally, the total distance is rounded to two decimal places using the
     // roundToTwoDecimals() method.
-    public static double calculateTourDistance(double[][] distanceMatrix, List<Integer> tour) {
+    public static double calculateTourDistance(DistanceMatrix distanceMatrix, List<Integer> tour) {
+        SolverMetrics.Phase phase = SolverMetrics.phase("tourDistance");
+        try {
+            return sumTourDistance(distanceMatrix, tour);
+        } finally {
+            phase.close();
+        }
+    }
+
+    private static double sumTourDistance(DistanceMatrix distanceMatrix, List<Integer> tour) {
         double totalDistance = 0;
-        for (int i = 0; i < tour.size() - 1; i++) {
-            // Add the distance from the current city to the next city in the tour
-            totalDistance += distanceMatrix[tour.get(i)][tour.get(i + 1)];
+        int n = tour.size();
+        for (int i = 0; i < n; i++) {
+            // Add the distance from the current city to the next city in the tour, wrapping
+            // from the last city back to the first city to complete the loop
+            double distance = distanceMatrix.get(tour.get(i), tour.get(i + 1 == n ? 0 : i + 1));
+            // A missing pair (INF) makes the tour infinitely long instead of overflowing the sum
+            if (distance >= DistanceMatrix.INF) return Double.POSITIVE_INFINITY;
+            totalDistance += distance;
         }
-        // Add the distance from the last city back to the first city to complete the loop
-        totalDistance += distanceMatrix[tour.get(tour.size() - 1)][tour.get(0)];
         // Round the total distance to two decimal places
         return roundToTwoDecimals(totalDistance);
     }
@@ -117,10 +51,15 @@ public class NearestNeighborTSP1 {
     }
 
     // Nearest Neighbor Algorithm for solving the TSP
-    public static List<Integer> nearestNeighbor(double[][] distanceMatrix, int startCity) {
-        int n = distanceMatrix.length;
-        List<Integer> tour = new ArrayList<>();
-        boolean[] visited = new boolean[n];
+    public static List<Integer> nearestNeighbor(DistanceMatrix distanceMatrix, int startCity) {
+        return nearestNeighbor(distanceMatrix, startCity, new boolean[distanceMatrix.size()]);
+    }
+
+    // Same as above, reusing a caller-owned visited buffer (cleared here) between calls
+    public static List<Integer> nearestNeighbor(DistanceMatrix distanceMatrix, int startCity, boolean[] visited) {
+        int n = distanceMatrix.size();
+        List<Integer> tour = new ArrayList<>(n);
+        Arrays.fill(visited, false);
         int currentCity = startCity;
 
         visited[currentCity] = true;
@@ -131,11 +70,16 @@ public class NearestNeighborTSP1 {
             int nearestCity = -1;
 
             for (int j = 0; j < n; j++) {
-                if (!visited[j] && distanceMatrix[currentCity][j] < nearestDistance) {
-                    nearestDistance = distanceMatrix[currentCity][j];
+                if (!visited[j] && distanceMatrix.get(currentCity, j) < nearestDistance) {
+                    nearestDistance = distanceMatrix.get(currentCity, j);
                     nearestCity = j;
                 }
             }
+            // No reachable city left (disconnected sparse graph): continue with the lowest
+            // unvisited one, so the tour gets an infinite length instead of failing
+            if (nearestCity < 0) {
+                nearestCity = TourConstruction.lowestUnvisited(visited);
+            }
 
             visited[nearestCity] = true;
             tour.add(nearestCity);
@@ -164,63 +108,75 @@ public class NearestNeighborTSP1 {
     }
 
     public static void main(String[] args) {
-        // Define the file path to the CSV file containing distances between cities
-        String filePath = "DistanceBetweenEuropeanCities.csv";
+        // Define the file path to the CSV file containing distances between cities (optional fourth argument: .csv edge list, coordinate .csv or TSPLIB .tsp)
+        String filePath = args.length > 3 ? args[3] : "DistanceBetweenEuropeanCities.csv";
+
+        // -Dtsp.metrics=true collects phase timers and move counters, printed at the end
+        SolverMetrics.InMemoryRegistry metrics = SolverMetrics.enableFromSystemProperty();
 
         // Use try-with-resources to automatically close the Scanner after use
         try (Scanner scanner = new Scanner(System.in)) {
             // Prompt the user to enter the maximum number of cities to process
-            System.out.println("Enter the maximum number of cities to calculate (up to 50):");
+            System.out.println("Enter the maximum number of cities to calculate (at least 2; the whole file if it has fewer):");
             int maxCities = scanner.nextInt(); // Read the user input for the number of cities
 
-            // Validate that the input is within the allowed range (2 to 50)
-            if (maxCities < 2 || maxCities > 50) {
-                System.err.println("Please enter a number between 2 and 50.");
+            // Validate that the input is at least 2; larger files are no longer capped at 50
+            if (maxCities < 2) {
+                System.err.println("Please enter a number of at least 2.");
                 return; // Exit the program if the input is invalid
             }
 
+            // Optional arguments: number of worker threads, random seed and matrix storage
+            int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+            long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+            DistanceMatrix.Storage storage = args.length > 2 ? DistanceMatrix.Storage.valueOf(args[2].toUpperCase()) : DistanceMatrix.Storage.FLAT;
+            // Objective used to pick the best start: total length, or longest edge (Bottleneck TSP)
+            TourObjective objective = args.length > 4 ? TourObjective.valueOf(args[4].toUpperCase()) : TourObjective.SUM;
+
             // Invoke the readCSV method to get city names and distance matrix based on the input limit
-            Map<String, Object> data = readCSV(filePath, maxCities);
-            List<String> cityNames = (List<String>) data.get("cityNames"); // Retrieve city names
-            double[][] distanceMatrix = (double[][]) data.get("distanceMatrix"); // Retrieve distance matrix
+            TSPInstance instance = TSPLoader.load(filePath, maxCities, storage);
+            List<String> cityNames = instance.getCityNames(); // Retrieve city names
+            DistanceMatrix distanceMatrix = instance.getDistanceMatrix(); // Retrieve distance matrix
 
-            int n = distanceMatrix.length; // Determine the number of cities
-            double bestDistance = INF; // Initialize the best distance to infinity
-            List<Integer> bestTour = null; // Initialize the best tour as null
-            int bestStartCity = -1; // Initialize the best start city index as -1
+            int n = distanceMatrix.size(); // Determine the number of cities
 
             // Record the start time of the computation for performance measurement
             long startTime = System.nanoTime();
 
-            // Iterate over each city as a potential starting point for the tour
-            for (int startCity = 0; startCity < n; startCity++) {
-                // Generate a tour starting from the current city using the nearest neighbor algorithm
-                List<Integer> tour = nearestNeighbor(distanceMatrix, startCity);
-                // Calculate the total distance of the generated tour
-                double tourDistance = calculateTourDistance(distanceMatrix, tour);
-
-                // Print the generated tour and its total distance
-                System.out.println("\nTour Starting from " + cityNames.get(startCity) + ":");
-                printTourWithCityNames(tour, cityNames);
-                System.out.println("Distance: " + String.format("%.2f", tourDistance));
-
-                // Update the best tour if the current tour has a shorter distance
-                if (tourDistance < bestDistance) {
-                    bestDistance = tourDistance;
-                    bestTour = tour;
-                    bestStartCity = startCity;
-                }
-            }
+            // Generate a tour from every start city in parallel; the spatial index (k-d tree or
+            // sorted candidate lists) is built once and each worker keeps its own search state
+            TourConstruction.NearestNeighborIndex index = new TourConstruction.NearestNeighborIndex(distanceMatrix);
+            MultiStartSolver solver = new MultiStartSolver(workers, seed);
+            MultiStartSolver.Result result = solver.solve(n,
+                    index::newSearch,
+                    (startCity, random, search) -> search.tour(startCity),
+                    tour -> objective.evaluate(distanceMatrix, tour));
 
             // Record the end time of the computation
             long endTime = System.nanoTime();
             // Calculate the elapsed time in milliseconds
             double elapsedTime = (endTime - startTime) / 1_000_000.0;
 
+            // Print every generated tour and its total distance, in start city order
+            for (int startCity = 0; startCity < n; startCity++) {
+                System.out.println("\nTour Starting from " + cityNames.get(startCity) + ":");
+                printTourWithCityNames(result.tours.get(startCity), cityNames);
+                System.out.println("Distance: " + String.format("%.2f", calculateTourDistance(distanceMatrix, result.tours.get(startCity))));
+                if (objective == TourObjective.BOTTLENECK) {
+                    System.out.println("Bottleneck: " + String.format("%.2f", result.distances[startCity]));
+                }
+            }
+            int bestStartCity = result.bestStartCity; // Best score under the objective, lowest start city on ties
+            List<Integer> bestTour = result.bestTour();
+            double bestDistance = calculateTourDistance(distanceMatrix, bestTour);
+
             // Print the best tour found and its total distance
             System.out.println("\nBest Tour Starting from " + cityNames.get(bestStartCity) + ":");
             printTourWithCityNames(bestTour, cityNames);
             System.out.println("Best Distance: " + String.format("%.2f", bestDistance));
+            if (objective == TourObjective.BOTTLENECK) {
+                System.out.println("Best Bottleneck: " + String.format("%.2f", result.bestDistance()));
+            }
             // Print the computation time in milliseconds
             System.out.printf("\nComputation Time: %.2f milliseconds\n", elapsedTime);
 
@@ -231,13 +187,21 @@ public class NearestNeighborTSP1 {
             System.out.println("User Name: " + System.getProperty("user.name"));
             System.out.println("Java Version: " + System.getProperty("java.version"));
             System.out.println("Java Vendor: " + System.getProperty("java.vendor"));
+            if (metrics != null) {
+                System.out.println("\nSolver Metrics:");
+                System.out.print(metrics.summary());
+            }
 
         } catch (IOException e) {
             // Catch and handle exceptions related to reading the CSV file
             System.err.println("Error reading the CSV file: " + e.getMessage());
         } catch (InputMismatchException e) {
             // Catch and handle invalid input for the number of cities
-            System.err.println("Invalid input. Please enter a number between 2 and 50.");
+            System.err.println("Invalid input. Please enter a number of at least 2.");
+        } catch (IllegalArgumentException e) {
+            // Catch and handle malformed command-line arguments or invalid input data
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java NearestNeighborTSP1 [workers] [seed] [FLAT|TRIANGULAR|FLOAT|QUANTIZED|OFF_HEAP] [file] [SUM|BOTTLENECK]");
         }
     }
 }
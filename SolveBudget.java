@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.*;
+
+// Limits how long a solve may run: a wall-clock deadline, a number of improving
+// moves, or an explicit cancel from another thread, whichever comes first
+// The clock starts when the budget is created. Local search engines check it every
+// few moves and report their move counts in batches, so the move limit may be
+// overshot by a few moves per worker; building and scoring the returned tours is
+// not interrupted, so on very large instances a solve ends shortly after the deadline.
+public final class SolveBudget {
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final long maxMoves;
+    private final LongAdder movesEvaluated = new LongAdder();
+    private final LongAdder movesApplied = new LongAdder();
+    private volatile boolean cancelled;
+
+    // timeLimitMillis or maxMoves <= 0 means no limit of that kind
+    public SolveBudget(long timeLimitMillis, long maxMoves) {
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = timeLimitMillis > 0 ? startNanos + timeLimitMillis * 1_000_000L : NO_LIMIT;
+        this.maxMoves = maxMoves > 0 ? maxMoves : NO_LIMIT;
+    }
+
+    public static SolveBudget unlimited() {
+        return new SolveBudget(0, 0);
+    }
+
+    public static SolveBudget ofMillis(long timeLimitMillis) {
+        return new SolveBudget(timeLimitMillis, 0);
+    }
+
+    public static SolveBudget ofMoves(long maxMoves) {
+        return new SolveBudget(0, maxMoves);
+    }
+
+    // Stops every solve using this budget at its next check
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isExhausted() {
+        if (cancelled) return true;
+        if (maxMoves != NO_LIMIT && movesApplied.sum() >= maxMoves) return true;
+        return deadlineNanos != NO_LIMIT && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    // Adds a worker's move counts since its last report
+    public void recordMoves(long evaluated, long applied) {
+        if (evaluated != 0) movesEvaluated.add(evaluated);
+        if (applied != 0) movesApplied.add(applied);
+    }
+
+    public long getMovesEvaluated() {
+        return movesEvaluated.sum();
+    }
+
+    public long getMovesApplied() {
+        return movesApplied.sum();
+    }
+
+    public double getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,225 @@
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Built-in solver instrumentation: phase timers with allocation, local search move
+// counters, and matching JFR events
+// Metrics go to a pluggable MetricsRegistry. The default registry is NOOP, and then a
+// phase costs a volatile read and a JFR enabled check and returns a shared no-op
+// handle, so call sites can stay in hot paths. JFR events are only built when a recording has them enabled.
+// Run with -Dtsp.metrics=true to collect into an in-memory registry and print it.
+//
+//     SolverMetrics.Phase phase = SolverMetrics.phase("construction");
+//     try {
+//         ...
+//     } finally {
+//         phase.close();
+//     }
+public final class SolverMetrics {
+    // Receives every measurement; implementations must be thread-safe
+    public interface MetricsRegistry {
+        // Adds to a named counter
+        void increment(String name, long amount);
+
+        // Records one timed occurrence of a named phase
+        void recordTime(String name, long nanos);
+    }
+
+    public static final MetricsRegistry NOOP = new MetricsRegistry() {
+        @Override
+        public void increment(String name, long amount) {
+        }
+
+        @Override
+        public void recordTime(String name, long nanos) {
+        }
+    };
+
+    private static volatile MetricsRegistry registry = NOOP;
+    // Registered once; isEnabled then follows recordings starting and stopping without
+    // building an event per check
+    private static final EventType PHASE_EVENT = EventType.getEventType(PhaseEvent.class);
+    private static final EventType LOCAL_SEARCH_EVENT = EventType.getEventType(LocalSearchEvent.class);
+
+    private SolverMetrics() {
+    }
+
+    public static void setRegistry(MetricsRegistry newRegistry) {
+        registry = newRegistry == null ? NOOP : newRegistry;
+    }
+
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    // Installs an in-memory registry when -Dtsp.metrics=true is set; returns it, or null
+    public static InMemoryRegistry enableFromSystemProperty() {
+        if (!Boolean.getBoolean("tsp.metrics")) return null;
+        InMemoryRegistry inMemory = new InMemoryRegistry();
+        setRegistry(inMemory);
+        return inMemory;
+    }
+
+    // Starts timing a phase on the current thread; close the handle to record it
+    public static Phase phase(String name) {
+        MetricsRegistry current = registry;
+        if (current == NOOP && !PHASE_EVENT.isEnabled()) return Phase.DISABLED;
+        return new Phase(name, current);
+    }
+
+    // Counts of one local search run (cities examined: n per full pass over the tour)
+    static void localSearch(int cities, long citiesExamined, long movesEvaluated, long movesApplied, long nanos) {
+        MetricsRegistry current = registry;
+        if (current != NOOP) {
+            current.recordTime("localSearch", nanos);
+            current.increment("localSearch.citiesExamined", citiesExamined);
+            current.increment("localSearch.movesEvaluated", movesEvaluated);
+            current.increment("localSearch.movesApplied", movesApplied);
+        }
+        if (LOCAL_SEARCH_EVENT.isEnabled()) {
+            LocalSearchEvent event = new LocalSearchEvent();
+            event.cities = cities;
+            event.passes = cities == 0 ? 0 : (double) citiesExamined / cities;
+            event.movesEvaluated = movesEvaluated;
+            event.movesApplied = movesApplied;
+            event.durationNanos = nanos;
+            event.commit();
+        }
+    }
+
+    // A running phase; records its time, and the bytes its thread allocated, on close
+    public static class Phase implements AutoCloseable {
+        static final Phase DISABLED = new Phase();
+
+        private final String name;
+        private final MetricsRegistry registry;
+        private final long startNanos;
+        private final long startAllocated;
+        private final PhaseEvent event;
+
+        private Phase() {
+            this.name = null;
+            this.registry = NOOP;
+            this.startNanos = 0;
+            this.startAllocated = 0;
+            this.event = null;
+        }
+
+        Phase(String name, MetricsRegistry registry) {
+            this.name = name;
+            this.registry = registry;
+            this.startAllocated = allocatedBytes();
+            this.event = new PhaseEvent();
+            event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (event == null) return;
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = allocatedBytes() - startAllocated;
+            registry.recordTime(name, nanos);
+            if (allocated > 0) registry.increment(name + ".allocatedBytes", allocated);
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.allocatedBytes = allocated;
+                event.commit();
+            }
+        }
+    }
+
+    // Bytes allocated so far by the current thread, or 0 where the JVM cannot tell
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    @Name("tsp.Phase")
+    @Label("Solver Phase")
+    @Category("TSP")
+    public static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+
+    @Name("tsp.LocalSearch")
+    @Label("Local Search")
+    @Category("TSP")
+    public static class LocalSearchEvent extends Event {
+        @Label("Cities")
+        int cities;
+
+        @Label("Passes")
+        @Description("Cities examined divided by the number of cities")
+        double passes;
+
+        @Label("Moves Evaluated")
+        long movesEvaluated;
+
+        @Label("Moves Applied")
+        long movesApplied;
+
+        @Label("Duration")
+        @Timespan
+        long durationNanos;
+    }
+
+    // Totals and counts per name, safe for concurrent updates
+    public static class InMemoryRegistry implements MetricsRegistry {
+        private final ConcurrentMap<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+        private final ConcurrentMap<String, LongAdder> timeNanos = new ConcurrentSkipListMap<>();
+        private final ConcurrentMap<String, LongAdder> timeCounts = new ConcurrentSkipListMap<>();
+
+        @Override
+        public void increment(String name, long amount) {
+            counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+        }
+
+        @Override
+        public void recordTime(String name, long nanos) {
+            timeNanos.computeIfAbsent(name, key -> new LongAdder()).add(nanos);
+            timeCounts.computeIfAbsent(name, key -> new LongAdder()).increment();
+        }
+
+        public long getCounter(String name) {
+            LongAdder counter = counters.get(name);
+            return counter == null ? 0 : counter.sum();
+        }
+
+        public double getTotalMillis(String name) {
+            LongAdder nanos = timeNanos.get(name);
+            return nanos == null ? 0 : nanos.sum() / 1_000_000.0;
+        }
+
+        // One line per phase (count, total time) and per counter, sorted by name
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, LongAdder> entry : timeNanos.entrySet()) {
+                sb.append(String.format("%-28s %8d x %12.2f ms%n", entry.getKey(),
+                        timeCounts.get(entry.getKey()).sum(), entry.getValue().sum() / 1_000_000.0));
+            }
+            for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+                sb.append(String.format("%-28s %25d%n", entry.getKey(), entry.getValue().sum()));
+            }
+            return sb.toString();
+        }
+    }
+}
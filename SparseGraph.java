@@ -0,0 +1,212 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Road network as compressed sparse rows: the arcs leaving city i are
+// targets[offsets[i] .. offsets[i + 1]) with matching weights
+// Used to complete instances that only list some pairs: shortestPathMatrix runs one
+// Dijkstra per source, sources split between workers, and writes the shortest path
+// distances (the metric closure) into a dense matrix. Pairs with no path stay INF.
+public final class SparseGraph {
+    // Sources per task when the shortest path rows are split between workers
+    private static final int SOURCES_PER_TASK = 16;
+
+    private final int n;
+    private final boolean directed;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    // Arcs from[e] -> to[e] for e < count; an undirected graph stores each edge both ways
+    public SparseGraph(int n, int[] from, int[] to, double[] weight, int count, boolean directed) {
+        this.n = n;
+        this.directed = directed;
+        int arcs = directed ? count : 2 * count;
+        this.offsets = new int[n + 1];
+        this.targets = new int[arcs];
+        this.weights = new double[arcs];
+
+        // Counting sort of the arcs by source
+        for (int e = 0; e < count; e++) {
+            if (weight[e] < 0) {
+                throw new IllegalArgumentException("Negative distance between cities " + from[e] + " and " + to[e]);
+            }
+            offsets[from[e] + 1]++;
+            if (!directed) offsets[to[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < count; e++) {
+            int slot = fill[from[e]]++;
+            targets[slot] = to[e];
+            weights[slot] = weight[e];
+            if (!directed) {
+                slot = fill[to[e]]++;
+                targets[slot] = from[e];
+                weights[slot] = weight[e];
+            }
+        }
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public int arcCount() {
+        return targets.length;
+    }
+
+    // Shortest path distances from source to every city (INF where unreachable)
+    public void shortestPaths(int source, double[] distances) {
+        new Dijkstra().run(source, distances);
+    }
+
+    // Dense matrix of all shortest path distances in the given backend, one Dijkstra
+    // per source spread over the workers
+    public DistanceMatrix shortestPathMatrix(DistanceMatrix.Storage storage, int workers) {
+        DistanceMatrix.Writable matrix = DistanceMatrix.writable(n, storage);
+        fillShortestPaths(matrix, workers);
+        return matrix;
+    }
+
+    // Overwrites every entry of matrix with the shortest path distance. Rows are
+    // independent, so workers write disjoint cells; symmetric backends only take the
+    // upper triangle so that no cell is written twice.
+    void fillShortestPaths(DistanceMatrix.Writable matrix, int workers) {
+        if (matrix.size() != n) {
+            throw new IllegalArgumentException("Expected a matrix of " + n + " cities, got " + matrix.size());
+        }
+        if (directed && matrix.isSymmetric()) {
+            throw new IllegalArgumentException("A directed graph needs an asymmetric storage backend, not a symmetric one");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be at least 1");
+        }
+        ThreadLocal<Dijkstra> scratch = ThreadLocal.withInitial(Dijkstra::new);
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            pool.invoke(new SourceRange(0, n, matrix, scratch));
+        } finally {
+            pool.shutdown();
+        }
+        matrix.setDirected(directed && !DistanceMatrix.hasSymmetricValues(matrix));
+    }
+
+    private class SourceRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final DistanceMatrix.Writable matrix;
+        private final ThreadLocal<Dijkstra> scratch;
+
+        SourceRange(int from, int to, DistanceMatrix.Writable matrix, ThreadLocal<Dijkstra> scratch) {
+            this.from = from;
+            this.to = to;
+            this.matrix = matrix;
+            this.scratch = scratch;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SOURCES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SourceRange(from, mid, matrix, scratch), new SourceRange(mid, to, matrix, scratch));
+                return;
+            }
+            Dijkstra dijkstra = scratch.get();
+            double[] row = dijkstra.row;
+            boolean upperOnly = matrix.isSymmetric();
+            for (int source = from; source < to; source++) {
+                dijkstra.run(source, row);
+                for (int target = upperOnly ? source + 1 : 0; target < n; target++) {
+                    if (target != source) matrix.set(source, target, row[target]);
+                }
+            }
+        }
+    }
+
+    // Dijkstra with an indexed binary heap in primitive arrays, reused across sources
+    private final class Dijkstra {
+        final double[] row = new double[n];
+        private final int[] heap = new int[n];
+        // Heap slot of each city, -1 if not in the heap
+        private final int[] slot = new int[n];
+        private final boolean[] settled = new boolean[n];
+        private int size;
+
+        void run(int source, double[] distances) {
+            Arrays.fill(distances, DistanceMatrix.INF);
+            Arrays.fill(slot, -1);
+            Arrays.fill(settled, false);
+            size = 0;
+            distances[source] = 0;
+            push(source, distances);
+            while (size > 0) {
+                int city = pop(distances);
+                settled[city] = true;
+                double base = distances[city];
+                for (int arc = offsets[city]; arc < offsets[city + 1]; arc++) {
+                    int target = targets[arc];
+                    if (settled[target]) continue;
+                    double candidate = base + weights[arc];
+                    if (candidate < distances[target]) {
+                        distances[target] = candidate;
+                        if (slot[target] < 0) push(target, distances);
+                        else siftUp(slot[target], distances);
+                    }
+                }
+            }
+        }
+
+        private void push(int city, double[] distances) {
+            heap[size] = city;
+            slot[city] = size;
+            siftUp(size++, distances);
+        }
+
+        private int pop(double[] distances) {
+            int top = heap[0];
+            slot[top] = -1;
+            if (--size > 0) {
+                heap[0] = heap[size];
+                slot[heap[0]] = 0;
+                siftDown(0, distances);
+            }
+            return top;
+        }
+
+        private void siftUp(int i, double[] distances) {
+            int city = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[heap[parent]] <= distances[city]) break;
+                heap[i] = heap[parent];
+                slot[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = city;
+            slot[city] = i;
+        }
+
+        private void siftDown(int i, double[] distances) {
+            int city = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && distances[heap[child + 1]] < distances[heap[child]]) child++;
+                if (distances[heap[child]] >= distances[city]) break;
+                heap[i] = heap[child];
+                slot[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = city;
+            slot[city] = i;
+        }
+    }
+}
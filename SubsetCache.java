@@ -0,0 +1,279 @@
+import java.util.*;
+
+// LRU cache of solved city subsets of one master dataset
+// A subset is keyed by its canonical form (city ids sorted ascending) and a 64-bit hash
+// of it, so the same cities requested in any order share one entry. Tours are stored
+// as master city ids with the effort (kicks, time limit) that produced them. A repeated
+// subset is answered from the cache when it was solved with at least the requested
+// effort, and otherwise restarts from the cached tour; a new subset that mostly overlaps
+// a cached one is warm-started from that tour, with the cities it lacks added by
+// cheapest insertion, so the local search only has to repair the seams.
+public class SubsetCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    // Smallest share of a request's cities that a cached tour must cover to seed it
+    private static final double MIN_WARM_START_OVERLAP = 0.5;
+    // Smaller subsets are built from scratch faster than the cache can be searched
+    private static final int MIN_WARM_START_CITIES = 100;
+
+    // Cached best tour of one subset
+    public static final class Entry {
+        final int[] cities;
+        final int[] tour;
+        final double distance;
+        // Effort behind the tour; a time limit of 0 means none
+        final long kicks;
+        final long timeLimitMillis;
+
+        Entry(int[] cities, int[] tour, double distance, long kicks, long timeLimitMillis) {
+            this.cities = cities;
+            this.tour = tour;
+            this.distance = distance;
+            this.kicks = kicks;
+            this.timeLimitMillis = timeLimitMillis;
+        }
+
+        // Whether the tour was solved with at least this many kicks and this much time
+        public boolean covers(long kicks, long timeLimitMillis) {
+            return this.kicks >= kicks
+                    && (this.timeLimitMillis <= 0 || (timeLimitMillis > 0 && this.timeLimitMillis >= timeLimitMillis));
+        }
+
+        // Tour as master city ids
+        public int[] getTour() {
+            return tour.clone();
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+    }
+
+    private static final class Key {
+        final int[] cities;
+        final long hash;
+
+        Key(int[] cities) {
+            this.cities = cities;
+            this.hash = subsetHash(cities);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).hash == hash && Arrays.equals(((Key) other).cities, cities);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits;
+    private long warmStarts;
+    private long misses;
+
+    public SubsetCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        // Access order makes the eldest entry the least recently used one
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Sorted copy of the city ids; rejects duplicates
+    public static int[] canonical(int[] cities) {
+        int[] sorted = cities.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                throw new IllegalArgumentException("City listed twice: " + sorted[i]);
+            }
+        }
+        return sorted;
+    }
+
+    // 64-bit hash of a canonical subset (SplitMix64 finalizer over each id in turn)
+    public static long subsetHash(int[] sortedCities) {
+        long h = sortedCities.length;
+        for (int city : sortedCities) {
+            long z = h + city + 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            h = z ^ (z >>> 31);
+        }
+        return h;
+    }
+
+    // Cached tour of exactly this canonical subset, or null; it only counts as a hit
+    // when it covers the requested effort (otherwise the caller resumes from it)
+    public synchronized Entry get(int[] sortedCities, long kicks, long timeLimitMillis) {
+        Entry entry = entries.get(new Key(sortedCities));
+        if (entry != null && entry.covers(kicks, timeLimitMillis)) hits++;
+        return entry;
+    }
+
+    // Stores a tour (master city ids) solved with the given effort, unless the cache
+    // already holds a shorter one. A tour restarted from the cached one (see resume) is
+    // never longer and replaces it, and then counts the effort of both solves.
+    public synchronized void put(int[] sortedCities, int[] tour, double distance, long kicks, long timeLimitMillis) {
+        Key key = new Key(sortedCities);
+        Entry old = entries.get(key);
+        if (old == null || distance < old.distance) {
+            entries.put(key, new Entry(sortedCities, tour.clone(), distance, kicks, timeLimitMillis));
+        } else if (distance == old.distance) {
+            boolean unlimited = old.timeLimitMillis <= 0 || timeLimitMillis <= 0;
+            entries.put(key, new Entry(sortedCities, tour.clone(), distance, Math.max(kicks, old.kicks),
+                    unlimited ? 0 : Math.max(timeLimitMillis, old.timeLimitMillis)));
+        }
+    }
+
+    // Starting tour over the view's cities from a cached entry of the same subset, for a
+    // request that asks for more effort than the entry covers
+    public List<Integer> resume(SubsetDistanceMatrix view, Entry entry, int[][] neighbors) {
+        synchronized (this) {
+            warmStarts++;
+        }
+        return insertMissing(view, entry.tour, neighbors);
+    }
+
+    // Starting tour over the view's cities built from the cached subset that shares the
+    // most cities with it, or null if none covers MIN_WARM_START_OVERLAP of them
+    public List<Integer> warmStart(SubsetDistanceMatrix view, int[] sortedCities, int[][] neighbors) {
+        Entry source = null;
+        synchronized (this) {
+            if (sortedCities.length < MIN_WARM_START_CITIES) {
+                misses++;
+                return null;
+            }
+            int bestOverlap = (int) Math.ceil(MIN_WARM_START_OVERLAP * sortedCities.length);
+            for (Entry entry : entries.values()) {
+                int overlap = overlap(entry.cities, sortedCities);
+                if (overlap >= bestOverlap && overlap >= 3) {
+                    bestOverlap = overlap + 1;
+                    source = entry;
+                }
+            }
+            if (source == null) {
+                misses++;
+                return null;
+            }
+            warmStarts++;
+        }
+        return insertMissing(view, source.tour, neighbors);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getWarmStarts() {
+        return warmStarts;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Number of common ids of two sorted arrays
+    private static int overlap(int[] a, int[] b) {
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // The cached tour restricted to the view, with every other view city inserted where
+    // it lengthens the tour least (looking next to its nearest neighbors already placed)
+    private static List<Integer> insertMissing(SubsetDistanceMatrix view, int[] cachedTour, int[][] neighbors) {
+        int n = view.size();
+        int[] next = new int[n];
+        int[] prev = new int[n];
+        boolean[] inTour = new boolean[n];
+        int first = -1;
+        int last = -1;
+        for (int baseCity : cachedTour) {
+            int city = view.indexOf(baseCity);
+            if (city < 0) continue;
+            if (first < 0) first = city;
+            else {
+                next[last] = city;
+                prev[city] = last;
+            }
+            inTour[city] = true;
+            last = city;
+        }
+        next[last] = first;
+        prev[first] = last;
+
+        for (int city = 0; city < n; city++) {
+            if (inTour[city]) continue;
+            int bestAfter = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int neighbor : neighbors[city]) {
+                if (!inTour[neighbor]) continue;
+                double costBefore = insertionCost(view, prev[neighbor], city, neighbor);
+                double costAfter = insertionCost(view, neighbor, city, next[neighbor]);
+                if (costBefore < bestCost) {
+                    bestCost = costBefore;
+                    bestAfter = prev[neighbor];
+                }
+                if (costAfter < bestCost) {
+                    bestCost = costAfter;
+                    bestAfter = neighbor;
+                }
+            }
+            if (bestAfter < 0) {
+                // No placed neighbor: scan the whole tour
+                int a = first;
+                do {
+                    double cost = insertionCost(view, a, city, next[a]);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAfter = a;
+                    }
+                    a = next[a];
+                } while (a != first);
+            }
+            if (bestAfter < 0) {
+                // Every insertion crosses a missing pair (INF): any place is as bad
+                bestAfter = last;
+            }
+            int after = next[bestAfter];
+            next[bestAfter] = city;
+            prev[city] = bestAfter;
+            next[city] = after;
+            prev[after] = city;
+            inTour[city] = true;
+            last = city;
+        }
+
+        List<Integer> tour = new ArrayList<>(n);
+        int city = 0;
+        do {
+            tour.add(city);
+            city = next[city];
+        } while (city != 0);
+        return tour;
+    }
+
+    private static double insertionCost(DistanceMatrix distanceMatrix, int a, int city, int b) {
+        return distanceMatrix.get(a, city) + distanceMatrix.get(city, b) - distanceMatrix.get(a, b);
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.*;
+
+// Read-only view of a subset of another matrix's cities, by index remapping
+// City i of the view is city cities[i] of the base matrix; nothing is copied, so a
+// view costs O(subset) memory however large the base matrix is.
+public final class SubsetDistanceMatrix extends DistanceMatrix {
+    private final DistanceMatrix base;
+    private final int[] cities;
+    // Base city ids in ascending order with their view index, for reverse lookups
+    private final int[] sortedCities;
+    private final int[] sortedIndex;
+
+    public SubsetDistanceMatrix(DistanceMatrix base, int[] cities) {
+        super(cities.length);
+        this.base = base;
+        this.cities = cities.clone();
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int city = cities[i];
+            if (city < 0 || city >= base.size()) {
+                throw new IllegalArgumentException("City index out of range: " + city);
+            }
+            keys[i] = ((long) city << 32) | i;
+        }
+        Arrays.sort(keys);
+        this.sortedCities = new int[n];
+        this.sortedIndex = new int[n];
+        for (int k = 0; k < n; k++) {
+            sortedCities[k] = (int) (keys[k] >>> 32);
+            sortedIndex[k] = (int) keys[k];
+            if (k > 0 && sortedCities[k] == sortedCities[k - 1]) {
+                throw new IllegalArgumentException("City listed twice: " + sortedCities[k]);
+            }
+        }
+    }
+
+    public DistanceMatrix getBase() {
+        return base;
+    }
+
+    // Base city id of view city i
+    public int baseCity(int i) {
+        return cities[i];
+    }
+
+    // View index of a base city, or -1 if it is not in the subset
+    public int indexOf(int baseCity) {
+        int k = Arrays.binarySearch(sortedCities, baseCity);
+        return k >= 0 ? sortedIndex[k] : -1;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return base.get(cities[i], cities[j]);
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return base.isSymmetric();
+    }
+
+    @Override
+    public boolean isDirected() {
+        return base.isDirected();
+    }
+
+    // Neighbor lists for the view, derived from the base instance's (sorted) lists by
+    // dropping cities outside the subset; a city left with fewer than k neighbors gets
+    // a scan of the subset instead. Lists are sorted closest first, as the engine needs.
+    public int[][] neighborLists(int[][] baseNeighbors, int k) {
+        k = Math.min(k, n - 1);
+        int[][] neighbors = new int[n][];
+        double[] bestDistances = new double[k];
+        for (int i = 0; i < n; i++) {
+            int[] list = new int[k];
+            int size = 0;
+            for (int baseNeighbor : baseNeighbors[cities[i]]) {
+                int j = indexOf(baseNeighbor);
+                if (j >= 0) {
+                    list[size++] = j;
+                    if (size == k) break;
+                }
+            }
+            if (size < k) {
+                size = 0;
+                for (int j = 0; j < n; j++) {
+                    if (j == i) continue;
+                    double distance = LocalSearchEngine.candidateDistance(this, i, j);
+                    if (size == k && distance >= bestDistances[k - 1]) continue;
+
+                    // Insertion into the small sorted candidate array
+                    int slot = size < k ? size++ : k - 1;
+                    while (slot > 0 && bestDistances[slot - 1] > distance) {
+                        bestDistances[slot] = bestDistances[slot - 1];
+                        list[slot] = list[slot - 1];
+                        slot--;
+                    }
+                    bestDistances[slot] = distance;
+                    list[slot] = j;
+                }
+            }
+            neighbors[i] = list;
+        }
+        return neighbors;
+    }
+}
@@ -0,0 +1,368 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Compact binary files for parsed instances (.tspb) and saved tours, read and written
+// through FileChannels in little-endian order
+// An instance file holds the city names and either the coordinates (for coordinate
+// instances, which never build a matrix) or the distances: the upper triangle when the
+// matrix is symmetric, all n*n entries otherwise. Rows are fixed-size, so loading only
+// the first maxCities cities seeks past the rest instead of reading it. A tour file holds
+// one tour with its score and the solve time spent on it, tagged with a fingerprint of
+// the instance's city names so it is never resumed against a different instance.
+// Files are written to a temporary sibling and moved into place, so a run killed
+// mid-write leaves the previous file intact.
+public final class TSPBinaryFormat {
+    private static final int INSTANCE_MAGIC = 0x42505354; // "TSPB"
+    private static final int TOUR_MAGIC = 0x54505354; // "TSPT"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Instance body kinds
+    private static final byte FULL_MATRIX = 0;
+    private static final byte TRIANGULAR_MATRIX = 1;
+    private static final byte COORDINATES = 2;
+
+    // A tour read back from a tour file
+    public static final class SavedTour {
+        public final long fingerprint;
+        public final int[] tour;
+        public final double score;
+        public final double elapsedMillis;
+
+        SavedTour(long fingerprint, int[] tour, double score, double elapsedMillis) {
+            this.fingerprint = fingerprint;
+            this.tour = tour;
+            this.score = score;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        // The tour rotated to begin at startCity
+        public List<Integer> tourFrom(int startCity) {
+            int n = tour.length;
+            int offset = 0;
+            while (tour[offset] != startCity) offset++;
+            List<Integer> rotated = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                rotated.add(tour[(offset + i) % n]);
+            }
+            return rotated;
+        }
+    }
+
+    private TSPBinaryFormat() {
+    }
+
+    // Identifies an instance by its city names in order
+    public static long fingerprint(List<String> cityNames) {
+        long h = cityNames.size();
+        for (String name : cityNames) {
+            long z = h + name.hashCode() + 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            h = z ^ (z >>> 31);
+        }
+        return h;
+    }
+
+    public static void writeInstance(TSPInstance instance, Path path) throws IOException {
+        DistanceMatrix distanceMatrix = instance.getDistanceMatrix();
+        int n = instance.size();
+        byte kind = distanceMatrix instanceof CoordinateDistanceMatrix ? COORDINATES
+                : DistanceMatrix.hasSymmetricValues(distanceMatrix) ? TRIANGULAR_MATRIX : FULL_MATRIX;
+        writeAtomically(path, out -> {
+            out.putInt(INSTANCE_MAGIC);
+            out.putInt(VERSION);
+            out.put(kind);
+            out.putInt(n);
+            for (String name : instance.getCityNames()) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+            if (kind == COORDINATES) {
+                CoordinateDistanceMatrix coordinates = (CoordinateDistanceMatrix) distanceMatrix;
+                out.put((byte) coordinates.getMetric().ordinal());
+                for (int i = 0; i < n; i++) out.putDouble(coordinates.getX(i));
+                for (int i = 0; i < n; i++) out.putDouble(coordinates.getY(i));
+            } else {
+                for (int i = 0; i < n; i++) {
+                    for (int j = kind == TRIANGULAR_MATRIX ? i + 1 : 0; j < n; j++) {
+                        out.putDouble(distanceMatrix.get(i, j));
+                    }
+                }
+            }
+        });
+    }
+
+    // Reads an instance file, limited to its first maxCities cities
+    public static TSPInstance readInstance(String filePath, int maxCities, DistanceMatrix.Storage storage) throws IOException {
+        try (ChannelReader in = new ChannelReader(Paths.get(filePath))) {
+            in.expectHeader(INSTANCE_MAGIC, filePath);
+            byte kind = in.get();
+            int n = in.getInt();
+            int m = Math.min(n, maxCities);
+            List<String> cityNames = new ArrayList<>(m);
+            for (int i = 0; i < n; i++) {
+                byte[] bytes = in.getBytes(in.getInt());
+                if (i < m) cityNames.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            if (kind == COORDINATES) {
+                CoordinateDistanceMatrix.Metric metric = CoordinateDistanceMatrix.Metric.values()[in.get()];
+                long body = in.position();
+                double[] x = in.getDoubles(body, m);
+                double[] y = in.getDoubles(body + (long) n * Double.BYTES, m);
+                return new TSPInstance(cityNames, new CoordinateDistanceMatrix(x, y, metric));
+            }
+            if (kind != FULL_MATRIX && kind != TRIANGULAR_MATRIX) {
+                throw new IOException(filePath + ": unknown instance kind " + kind);
+            }
+
+            DistanceMatrix.Writable distanceMatrix = DistanceMatrix.writable(m, storage);
+            if (kind == FULL_MATRIX && distanceMatrix.isSymmetric()) {
+                throw new IllegalArgumentException(storage + " storage needs a symmetric matrix, but " + filePath + " is not");
+            }
+            long body = in.position();
+            for (int i = 0; i < m; i++) {
+                if (kind == TRIANGULAR_MATRIX) {
+                    // Row i holds (i, j) for j > i; its first m - i - 1 entries are the ones kept
+                    long rowStart = (long) i * (2L * n - i - 1) / 2;
+                    double[] row = in.getDoubles(body + rowStart * Double.BYTES, m - i - 1);
+                    for (int j = i + 1; j < m; j++) {
+                        distanceMatrix.set(i, j, row[j - i - 1]);
+                        if (!distanceMatrix.isSymmetric()) distanceMatrix.set(j, i, row[j - i - 1]);
+                    }
+                } else {
+                    double[] row = in.getDoubles(body + (long) i * n * Double.BYTES, m);
+                    for (int j = 0; j < m; j++) {
+                        if (j != i) distanceMatrix.set(i, j, row[j]);
+                    }
+                }
+            }
+            if (kind == FULL_MATRIX) {
+                // The first m cities of a directed file can still be symmetric among themselves
+                distanceMatrix.setDirected(!DistanceMatrix.hasSymmetricValues(distanceMatrix));
+            }
+            return new TSPInstance(cityNames, distanceMatrix);
+        }
+    }
+
+    public static void writeTour(Path path, long fingerprint, List<Integer> tour, double score, double elapsedMillis) throws IOException {
+        writeAtomically(path, out -> {
+            out.putInt(TOUR_MAGIC);
+            out.putInt(VERSION);
+            out.putLong(fingerprint);
+            out.putDouble(score);
+            out.putDouble(elapsedMillis);
+            out.putInt(tour.size());
+            for (int city : tour) out.putInt(city);
+        });
+    }
+
+    public static SavedTour readTour(Path path) throws IOException {
+        try (ChannelReader in = new ChannelReader(path)) {
+            in.expectHeader(TOUR_MAGIC, path.toString());
+            long fingerprint = in.getLong();
+            double score = in.getDouble();
+            double elapsedMillis = in.getDouble();
+            int n = in.getInt();
+            int[] tour = new int[n];
+            boolean[] seen = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                tour[i] = in.getInt();
+                if (tour[i] < 0 || tour[i] >= n || seen[tour[i]]) {
+                    throw new IOException(path + ": not a permutation of " + n + " cities");
+                }
+                seen[tour[i]] = true;
+            }
+            return new SavedTour(fingerprint, tour, score, elapsedMillis);
+        }
+    }
+
+    private interface Body {
+        void write(ChannelWriter out) throws IOException;
+    }
+
+    private static void writeAtomically(Path path, Body body) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (ChannelWriter out = new ChannelWriter(temporary)) {
+            body.write(out);
+        }
+        try {
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Buffered sequential writes to a new file, forced to disk on close
+    private static final class ChannelWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        ChannelWriter(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private ByteBuffer room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+            return buffer;
+        }
+
+        void put(byte value) throws IOException {
+            room(1).put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            room(Integer.BYTES).putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            room(Long.BYTES).putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            room(Double.BYTES).putDouble(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                int length = Math.min(bytes.length - offset, room(1).remaining());
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Buffered reads with absolute seeks
+    private static final class ChannelReader implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        ChannelReader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            buffer.limit(0);
+        }
+
+        void expectHeader(int magic, String name) throws IOException {
+            if (getInt() != magic) {
+                throw new IOException(name + ": not a " + (magic == INSTANCE_MAGIC ? "binary instance" : "tour") + " file");
+            }
+            int version = getInt();
+            if (version != VERSION) {
+                throw new IOException(name + ": unsupported format version " + version);
+            }
+        }
+
+        // Makes at least bytes (at most BUFFER_SIZE) available in the buffer
+        private ByteBuffer need(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.compact();
+                while (buffer.position() < bytes) {
+                    if (channel.read(buffer) < 0) throw new EOFException("Truncated file");
+                }
+                buffer.flip();
+            }
+            return buffer;
+        }
+
+        long position() throws IOException {
+            return channel.position() - buffer.remaining();
+        }
+
+        byte get() throws IOException {
+            return need(1).get();
+        }
+
+        int getInt() throws IOException {
+            return need(Integer.BYTES).getInt();
+        }
+
+        long getLong() throws IOException {
+            return need(Long.BYTES).getLong();
+        }
+
+        double getDouble() throws IOException {
+            return need(Double.BYTES).getDouble();
+        }
+
+        byte[] getBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            for (int offset = 0; offset < length; ) {
+                int chunk = Math.min(length - offset, BUFFER_SIZE);
+                need(chunk).get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return bytes;
+        }
+
+        // count doubles starting at an absolute file position
+        double[] getDoubles(long position, int count) throws IOException {
+            long buffered = channel.position() - buffer.limit();
+            if (position >= buffered && position <= channel.position()) {
+                buffer.position((int) (position - buffered));
+            } else {
+                channel.position(position);
+                buffer.limit(0);
+            }
+            double[] values = new double[count];
+            for (int offset = 0; offset < count; ) {
+                int chunk = Math.min(count - offset, BUFFER_SIZE / Double.BYTES);
+                need(chunk * Double.BYTES).asDoubleBuffer().get(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * Double.BYTES);
+                offset += chunk;
+            }
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Converts any input TSPLoader reads into a binary instance file:
+    // java TSPBinaryFormat <input> <output.tspb>
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java TSPBinaryFormat <input> <output.tspb>");
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            TSPInstance instance = TSPLoader.load(args[0], Integer.MAX_VALUE, DistanceMatrix.Storage.FLAT);
+            double parseMillis = (System.nanoTime() - start) / 1_000_000.0;
+            writeInstance(instance, Paths.get(args[1]));
+
+            start = System.nanoTime();
+            TSPInstance reloaded = readInstance(args[1], Integer.MAX_VALUE, DistanceMatrix.Storage.FLAT);
+            double reloadMillis = (System.nanoTime() - start) / 1_000_000.0;
+            System.out.printf("Wrote %d cities to %s (%d bytes)%n", reloaded.size(), args[1], Files.size(Paths.get(args[1])));
+            System.out.printf("Parse: %.2f ms, binary reload: %.2f ms%n", parseMillis, reloadMillis);
+        } catch (IOException e) {
+            System.err.println("Error converting the file: " + e.getMessage());
+        }
+    }
+}
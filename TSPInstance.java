@@ -0,0 +1,28 @@
+import java.util.*;
+
+// Parsed problem instance: city names and their distance matrix
+// Instances are immutable once built; the DistanceMatrix only exposes reads.
+public final class TSPInstance {
+    private final List<String> cityNames;
+    private final DistanceMatrix distanceMatrix;
+
+    public TSPInstance(List<String> cityNames, DistanceMatrix distanceMatrix) {
+        if (cityNames.size() != distanceMatrix.size()) {
+            throw new IllegalArgumentException("Expected " + cityNames.size() + " matrix rows, got " + distanceMatrix.size());
+        }
+        this.cityNames = Collections.unmodifiableList(new ArrayList<>(cityNames));
+        this.distanceMatrix = distanceMatrix;
+    }
+
+    public List<String> getCityNames() {
+        return cityNames;
+    }
+
+    public DistanceMatrix getDistanceMatrix() {
+        return distanceMatrix;
+    }
+
+    public int size() {
+        return cityNames.size();
+    }
+}
@@ -0,0 +1,462 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Shared loader for the City1,City2,Distance(km) edge list CSV files, plus coordinate
+// inputs (TSPLIB .tsp and name,latitude,longitude CSV) that never build a matrix
+// The edge list is read once through a FileChannel and parsed at byte level: city names are
+// interned on first sight (no String per row) and distances are parsed without
+// allocating in the common case. Cities are limited to the first maxCities seen in
+// file order, exactly as the old two-pass readCSV did.
+public final class TSPLoader {
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Largest integer mantissa and power of ten that both convert to double exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private TSPLoader() {
+    }
+
+    // Reads the edge list CSV, limited to maxCities cities
+    public static TSPInstance readCSV(String filePath, int maxCities) throws IOException {
+        return readCSV(filePath, maxCities, DistanceMatrix.Storage.FLAT);
+    }
+
+    // Same as above, storing the distances in the given backend
+    public static TSPInstance readCSV(String filePath, int maxCities, DistanceMatrix.Storage storage) throws IOException {
+        return readCSV(filePath, maxCities, storage, false);
+    }
+
+    // Same as above; a directed file's rows are one-way (City1 to City2) distances. Pairs the
+    // file does not list are completed with shortest paths through the listed ones (and
+    // then every pair is: the matrix becomes the metric closure of the road network).
+    public static TSPInstance readCSV(String filePath, int maxCities, DistanceMatrix.Storage storage, boolean directed) throws IOException {
+        if (directed && storage == DistanceMatrix.Storage.TRIANGULAR) {
+            throw new IllegalArgumentException("TRIANGULAR storage cannot hold a directed instance");
+        }
+        NameTable names = new NameTable();
+        EdgeList edges = new EdgeList();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            boolean headerSeen = false;
+            int lineNumber = 0;
+            boolean eof = false;
+
+            while (!eof) {
+                eof = channel.read(buffer) < 0;
+                byte[] bytes = buffer.array();
+                int limit = buffer.position();
+                int start = 0;
+
+                while (true) {
+                    int end = indexOf(bytes, (byte) '\n', start, limit);
+                    if (end < 0) {
+                        if (!eof) break; // Incomplete line, wait for more input
+                        if (start == limit) break;
+                        end = limit;
+                    }
+                    lineNumber++;
+                    if (!headerSeen) {
+                        checkHeader(bytes, start, end);
+                        headerSeen = true;
+                    } else {
+                        parseRow(bytes, start, end, lineNumber, maxCities, names, edges);
+                    }
+                    start = end + 1;
+                    if (start > limit) start = limit;
+                }
+
+                // Keep the unfinished line and make room for the next read
+                int remaining = limit - start;
+                if (start == 0 && remaining == bytes.length) {
+                    ByteBuffer larger = ByteBuffer.allocate(bytes.length * 2);
+                    larger.put(bytes, 0, remaining);
+                    buffer = larger;
+                } else {
+                    System.arraycopy(bytes, start, bytes, 0, remaining);
+                    buffer.position(remaining);
+                }
+            }
+
+            if (!headerSeen) {
+                throw new IOException("CSV file must have header: City1,City2,Distance(km)");
+            }
+        }
+
+        // Build the distance matrix from the collected edges, both ways unless directed
+        DistanceMatrix.Writable distanceMatrix = DistanceMatrix.writable(names.size(), storage);
+        for (int e = 0; e < edges.size; e++) {
+            int from = edges.from[e];
+            int to = edges.to[e];
+            distanceMatrix.set(from, to, edges.distance[e]);
+            if (!directed) distanceMatrix.set(to, from, edges.distance[e]);
+        }
+        if (hasMissingPairs(distanceMatrix)) {
+            new SparseGraph(names.size(), edges.from, edges.to, edges.distance, edges.size, directed)
+                    .fillShortestPaths(distanceMatrix, Runtime.getRuntime().availableProcessors());
+        } else if (directed) {
+            distanceMatrix.setDirected(!DistanceMatrix.hasSymmetricValues(distanceMatrix));
+        }
+
+        return new TSPInstance(names.toList(), distanceMatrix);
+    }
+
+    // Loads any supported file: TSPLIB .tsp, the City1,City2,Distance(km) edge list, or a
+    // name,latitude,longitude coordinate CSV (storage only applies to the edge list)
+    public static TSPInstance load(String filePath, int maxCities, DistanceMatrix.Storage storage) throws IOException {
+        SolverMetrics.Phase phase = SolverMetrics.phase("load");
+        try {
+            return loadFile(filePath, maxCities, storage, false);
+        } finally {
+            phase.close();
+        }
+    }
+
+    // Same as above; directed only applies to the edge list, see readCSV
+    public static TSPInstance load(String filePath, int maxCities, DistanceMatrix.Storage storage, boolean directed) throws IOException {
+        SolverMetrics.Phase phase = SolverMetrics.phase("load");
+        try {
+            return loadFile(filePath, maxCities, storage, directed);
+        } finally {
+            phase.close();
+        }
+    }
+
+    private static TSPInstance loadFile(String filePath, int maxCities, DistanceMatrix.Storage storage, boolean directed) throws IOException {
+        if (filePath.toLowerCase(Locale.ROOT).endsWith(".tspb")) {
+            return TSPBinaryFormat.readInstance(filePath, maxCities, storage);
+        }
+        if (filePath.toLowerCase(Locale.ROOT).endsWith(".tsp")) {
+            return readTSPLIB(filePath, maxCities);
+        }
+        String header;
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            header = br.readLine();
+        }
+        if (header != null && header.replaceAll("[\\s\uFEFF]", "").toLowerCase(Locale.ROOT).startsWith("city1,city2,")) {
+            return readCSV(filePath, maxCities, storage, directed);
+        }
+        return readCoordinateCSV(filePath, maxCities);
+    }
+
+    // Reads a TSPLIB file with NODE_COORD_SECTION and EDGE_WEIGHT_TYPE EUC_2D or GEO,
+    // limited to the first maxCities nodes; distances are computed on demand
+    public static TSPInstance readTSPLIB(String filePath, int maxCities) throws IOException {
+        CoordinateDistanceMatrix.Metric metric = null;
+        int dimension = -1;
+        List<String> cityNames = new ArrayList<>();
+        double[] x = null;
+        double[] y = null;
+
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            String line;
+            boolean inCoordinates = false;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.equals("EOF")) break;
+
+                if (!inCoordinates) {
+                    int colon = line.indexOf(':');
+                    String key = (colon < 0 ? line : line.substring(0, colon)).trim().toUpperCase(Locale.ROOT);
+                    String value = colon < 0 ? "" : line.substring(colon + 1).trim();
+                    if (key.equals("DIMENSION")) {
+                        dimension = Integer.parseInt(value);
+                    } else if (key.equals("EDGE_WEIGHT_TYPE")) {
+                        try {
+                            metric = CoordinateDistanceMatrix.Metric.valueOf(value.toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            metric = null;
+                        }
+                        if (metric == null || metric == CoordinateDistanceMatrix.Metric.HAVERSINE) {
+                            throw new IOException("Unsupported EDGE_WEIGHT_TYPE: " + value + " (expected EUC_2D or GEO)");
+                        }
+                    } else if (key.equals("NODE_COORD_SECTION")) {
+                        if (dimension < 0 || metric == null) {
+                            throw new IOException("TSPLIB file needs DIMENSION and EDGE_WEIGHT_TYPE before NODE_COORD_SECTION");
+                        }
+                        int n = Math.min(dimension, maxCities);
+                        x = new double[n];
+                        y = new double[n];
+                        inCoordinates = true;
+                    }
+                    continue;
+                }
+
+                if (!Character.isDigit(line.charAt(0))) break; // Next section, e.g. DISPLAY_DATA_SECTION
+                if (cityNames.size() == x.length) break;
+                String[] parts = line.split("\\s+");
+                if (parts.length < 3) {
+                    throw new IOException("Invalid node line: " + line);
+                }
+                x[cityNames.size()] = Double.parseDouble(parts[1]);
+                y[cityNames.size()] = Double.parseDouble(parts[2]);
+                cityNames.add(parts[0]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number in TSPLIB file: " + e.getMessage());
+        }
+
+        if (x == null) {
+            throw new IOException("TSPLIB file has no NODE_COORD_SECTION");
+        }
+        if (cityNames.size() < x.length) {
+            throw new IOException("Expected " + x.length + " nodes, found " + cityNames.size());
+        }
+        return new TSPInstance(cityNames, new CoordinateDistanceMatrix(x, y, metric));
+    }
+
+    // Reads name,latitude,longitude rows (decimal degrees, optional header line),
+    // limited to maxCities; distances are great-circle kilometres computed on demand
+    public static TSPInstance readCoordinateCSV(String filePath, int maxCities) throws IOException {
+        List<String> cityNames = new ArrayList<>();
+        double[] latitude = new double[16];
+        double[] longitude = new double[16];
+
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null && cityNames.size() < maxCities) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+                String[] parts = line.split(",");
+                if (parts.length != 3) {
+                    throw new IOException("Invalid row format at line " + lineNumber + ": " + line.trim());
+                }
+                double lat;
+                double lon;
+                try {
+                    lat = Double.parseDouble(parts[1].trim());
+                    lon = Double.parseDouble(parts[2].trim());
+                } catch (NumberFormatException e) {
+                    if (lineNumber == 1) continue; // Header
+                    throw new IOException("Invalid coordinates at line " + lineNumber + ": " + line.trim());
+                }
+                int index = cityNames.size();
+                if (index == latitude.length) {
+                    latitude = Arrays.copyOf(latitude, index * 2);
+                    longitude = Arrays.copyOf(longitude, index * 2);
+                }
+                latitude[index] = lat;
+                longitude[index] = lon;
+                cityNames.add(parts[0].trim());
+            }
+        }
+
+        int n = cityNames.size();
+        return new TSPInstance(cityNames, new CoordinateDistanceMatrix(
+                Arrays.copyOf(latitude, n), Arrays.copyOf(longitude, n), CoordinateDistanceMatrix.Metric.HAVERSINE));
+    }
+
+    // Accepts "City1,City2,Distance(km)" ignoring case and whitespace, so
+    // "Distance (km)" as used in the US file is also valid
+    private static void checkHeader(byte[] bytes, int start, int end) throws IOException {
+        // Skip a UTF-8 byte order mark
+        if (end - start >= 3 && bytes[start] == (byte) 0xEF && bytes[start + 1] == (byte) 0xBB && bytes[start + 2] == (byte) 0xBF) {
+            start += 3;
+        }
+        StringBuilder header = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            if (bytes[i] > ' ') {
+                header.append((char) (bytes[i] & 0xFF));
+            }
+        }
+        if (!header.toString().equalsIgnoreCase("City1,City2,Distance(km)")) {
+            throw new IOException("CSV file must have header: City1,City2,Distance(km)");
+        }
+    }
+
+    private static void parseRow(byte[] bytes, int start, int end, int lineNumber, int maxCities,
+                                 NameTable names, EdgeList edges) throws IOException {
+        // Blank lines (including a trailing "\r") are ignored
+        if (isBlank(bytes, start, end)) return;
+
+        int comma1 = indexOf(bytes, (byte) ',', start, end);
+        int comma2 = comma1 < 0 ? -1 : indexOf(bytes, (byte) ',', comma1 + 1, end);
+        if (comma2 < 0 || indexOf(bytes, (byte) ',', comma2 + 1, end) >= 0) {
+            throw new IOException("Invalid row format at line " + lineNumber + ": "
+                    + new String(bytes, start, end - start, StandardCharsets.UTF_8).trim());
+        }
+
+        int city1 = cityIndex(bytes, start, comma1, maxCities, names);
+        int city2 = cityIndex(bytes, comma1 + 1, comma2, maxCities, names);
+        double distance = parseDouble(bytes, comma2 + 1, end, lineNumber);
+
+        if (city1 >= 0 && city2 >= 0) {
+            edges.add(city1, city2, distance);
+        }
+    }
+
+    // Index of the trimmed name, registering it if there is still room; -1 if excluded
+    private static int cityIndex(byte[] bytes, int start, int end, int maxCities, NameTable names) {
+        while (start < end && bytes[start] <= ' ') start++;
+        while (end > start && bytes[end - 1] <= ' ') end--;
+        int index = names.find(bytes, start, end);
+        if (index < 0 && names.size() < maxCities) {
+            index = names.add(bytes, start, end);
+        }
+        return index;
+    }
+
+    // Parses a plain decimal directly from bytes; anything unusual (exponent, too many
+    // digits) falls back to Double.parseDouble so results are always correctly rounded
+    static double parseDouble(byte[] bytes, int start, int end, int lineNumber) throws IOException {
+        while (start < end && bytes[start] <= ' ') start++;
+        while (end > start && bytes[end - 1] <= ' ') end--;
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int fractionDigits = 0;
+        int digits = 0;
+        boolean seenPoint = false;
+        boolean fastPath = true;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (seenPoint) fractionDigits++;
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    fastPath = false;
+                    break;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                fastPath = false;
+                break;
+            }
+        }
+
+        if (fastPath && digits > 0 && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        String text = new String(bytes, start, end - start, StandardCharsets.US_ASCII);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid distance at line " + lineNumber + ": " + text);
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] > ' ') return false;
+        }
+        return true;
+    }
+
+    // Open-addressing table from raw name bytes to city index
+    private static final class NameTable {
+        private int[] slots = new int[64]; // city index + 1, 0 = empty
+        private final List<byte[]> keys = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+
+        int size() {
+            return names.size();
+        }
+
+        int find(byte[] bytes, int start, int end) {
+            int mask = slots.length - 1;
+            for (int slot = hash(bytes, start, end) & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots[slot];
+                if (entry == 0) return -1;
+                if (Arrays.equals(keys.get(entry - 1), 0, keys.get(entry - 1).length, bytes, start, end)) {
+                    return entry - 1;
+                }
+            }
+        }
+
+        int add(byte[] bytes, int start, int end) {
+            int index = names.size();
+            byte[] key = Arrays.copyOfRange(bytes, start, end);
+            keys.add(key);
+            names.add(new String(key, StandardCharsets.UTF_8));
+            if ((index + 1) * 2 > slots.length) {
+                rehash(slots.length * 2);
+            } else {
+                insert(key, index);
+            }
+            return index;
+        }
+
+        List<String> toList() {
+            return names;
+        }
+
+        private void rehash(int capacity) {
+            slots = new int[capacity];
+            for (int i = 0; i < keys.size(); i++) {
+                insert(keys.get(i), i);
+            }
+        }
+
+        private void insert(byte[] key, int index) {
+            int mask = slots.length - 1;
+            int slot = hash(key, 0, key.length) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index + 1;
+        }
+
+        private static int hash(byte[] bytes, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + bytes[i];
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // True if some ordered pair of distinct cities has no distance
+    private static boolean hasMissingPairs(DistanceMatrix distanceMatrix) {
+        int n = distanceMatrix.size();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j && distanceMatrix.get(i, j) >= DistanceMatrix.INF) return true;
+            }
+        }
+        return false;
+    }
+
+    // Growable primitive arrays of (from, to, distance) triples
+    private static final class EdgeList {
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        double[] distance = new double[1024];
+        int size;
+
+        void add(int a, int b, double d) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                distance = Arrays.copyOf(distance, size * 2);
+            }
+            from[size] = a;
+            to[size] = b;
+            distance[size] = d;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+import java.util.*;
+
+// Fast tour construction heuristics used as starting tours for the local search
+// Nearest neighbor runs on a k-d tree with deletion for coordinate instances and on
+// sorted per-city candidate lists (falling back to a full row scan) for matrices, so a
+// tour costs about O(n log n) instead of O(n^2). Greedy edge and space-filling curve
+// tours are usually better and cheaper starting points than a random shuffle.
+public final class TourConstruction {
+    public enum Method {
+        RANDOM,
+        NEAREST_NEIGHBOR,
+        GREEDY_EDGE,
+        SPACE_FILLING_CURVE
+    }
+
+    // Candidate list length for matrix nearest neighbor and greedy edge
+    public static final int CANDIDATE_COUNT = 16;
+    // Space-filling curve resolution per axis (2^16 cells)
+    private static final int HILBERT_ORDER = 16;
+
+    private TourConstruction() {
+    }
+
+    // Shared, read-only structures for repeated nearest neighbor tours
+    public static final class NearestNeighborIndex {
+        private final DistanceMatrix distanceMatrix;
+        private final KDTree tree;
+        private final int[][] candidates;
+
+        public NearestNeighborIndex(DistanceMatrix distanceMatrix) {
+            this.distanceMatrix = distanceMatrix;
+            if (distanceMatrix instanceof CoordinateDistanceMatrix) {
+                this.tree = KDTree.of((CoordinateDistanceMatrix) distanceMatrix);
+                this.candidates = null;
+            } else {
+                this.tree = null;
+                // Ranked by the distance leaving each city, which is what the tour follows
+                this.candidates = LocalSearchEngine.buildNeighborLists(distanceMatrix, CANDIDATE_COUNT, true);
+            }
+        }
+
+        // Mutable search state for one worker thread
+        public NearestNeighborSearch newSearch() {
+            return new NearestNeighborSearch(this);
+        }
+    }
+
+    public static final class NearestNeighborSearch {
+        private final NearestNeighborIndex index;
+        private final KDTree.Search treeSearch;
+        private final boolean[] visited;
+
+        NearestNeighborSearch(NearestNeighborIndex index) {
+            this.index = index;
+            this.treeSearch = index.tree == null ? null : index.tree.new Search();
+            this.visited = index.tree == null ? new boolean[index.distanceMatrix.size()] : null;
+        }
+
+        // Nearest neighbor tour from startCity; for matrices, directed ones included, the
+        // result is identical to NearestNeighborTSP1.nearestNeighbor (same tie-breaking on
+        // the lowest index, and the same lowest unvisited city when none is reachable)
+        public List<Integer> tour(int startCity) {
+            int n = index.distanceMatrix.size();
+            List<Integer> tour = new ArrayList<>(n);
+            if (treeSearch != null) {
+                treeSearch.reset();
+                int current = startCity;
+                tour.add(current);
+                treeSearch.delete(current);
+                for (int i = 1; i < n; i++) {
+                    current = treeSearch.nearest(current);
+                    treeSearch.delete(current);
+                    tour.add(current);
+                }
+                return tour;
+            }
+
+            DistanceMatrix distanceMatrix = index.distanceMatrix;
+            Arrays.fill(visited, false);
+            int current = startCity;
+            visited[current] = true;
+            tour.add(current);
+            for (int i = 1; i < n; i++) {
+                int nearest = -1;
+                // Candidates are sorted by outgoing distance, so the first unvisited one is the
+                // nearest unvisited city
+                for (int candidate : index.candidates[current]) {
+                    if (!visited[candidate]) {
+                        if (distanceMatrix.get(current, candidate) < DistanceMatrix.INF) nearest = candidate;
+                        break;
+                    }
+                }
+                if (nearest < 0) {
+                    double nearestDistance = DistanceMatrix.INF;
+                    for (int j = 0; j < n; j++) {
+                        if (!visited[j] && distanceMatrix.get(current, j) < nearestDistance) {
+                            nearestDistance = distanceMatrix.get(current, j);
+                            nearest = j;
+                        }
+                    }
+                }
+                if (nearest < 0) nearest = lowestUnvisited(visited);
+                visited[nearest] = true;
+                tour.add(nearest);
+                current = nearest;
+            }
+            return tour;
+        }
+    }
+
+    // Greedy edge matching: take candidate edges shortest first while every city keeps
+    // degree <= 2 and no cycle closes early, then chain the fragments nearest-end first
+    public static List<Integer> greedyEdge(DistanceMatrix distanceMatrix, int[][] neighbors) {
+        int n = distanceMatrix.size();
+        if (n < 3) return identity(n);
+
+        // Candidate edges, each undirected pair once (lists may differ in length)
+        int candidateEdges = 0;
+        for (int[] list : neighbors) candidateEdges += list.length;
+        int[] edgeFrom = new int[candidateEdges];
+        int[] edgeTo = new int[edgeFrom.length];
+        long[] keys = new long[edgeFrom.length];
+        int edgeCount = 0;
+        for (int a = 0; a < n; a++) {
+            for (int b : neighbors[a]) {
+                if (a > b && contains(neighbors[b], a)) continue;
+                double distance = distanceMatrix.get(a, b);
+                if (distance >= DistanceMatrix.INF) continue;
+                edgeFrom[edgeCount] = a;
+                edgeTo[edgeCount] = b;
+                // Non-negative float bits sort like the values; low half keeps the edge id
+                keys[edgeCount] = ((long) Float.floatToIntBits((float) Math.max(0, distance)) << 32) | edgeCount;
+                edgeCount++;
+            }
+        }
+        Arrays.sort(keys, 0, edgeCount);
+
+        int[] degree = new int[n];
+        int[] adjacent = new int[2 * n];
+        Arrays.fill(adjacent, -1);
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+
+        int added = 0;
+        for (int k = 0; k < edgeCount && added < n - 1; k++) {
+            int e = (int) keys[k];
+            int a = edgeFrom[e];
+            int b = edgeTo[e];
+            if (degree[a] == 2 || degree[b] == 2) continue;
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA == rootB) continue;
+            parent[rootA] = rootB;
+            adjacent[2 * a + degree[a]++] = b;
+            adjacent[2 * b + degree[b]++] = a;
+            added++;
+        }
+
+        // Fragment ends (isolated cities count as fragments of one)
+        int[] ends = new int[n];
+        int endCount = 0;
+        for (int c = 0; c < n; c++) {
+            if (degree[c] < 2) ends[endCount++] = c;
+        }
+
+        List<Integer> tour = new ArrayList<>(n);
+        boolean[] usedFragment = new boolean[n];
+        int current = ends[0];
+        while (true) {
+            usedFragment[find(parent, current)] = true;
+            // Walk the fragment from this end to its other end
+            int previous = -1;
+            while (true) {
+                tour.add(current);
+                int next = adjacent[2 * current] != previous ? adjacent[2 * current] : adjacent[2 * current + 1];
+                if (next < 0 || next == previous) break;
+                previous = current;
+                current = next;
+            }
+
+            int nearest = -1;
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < endCount; i++) {
+                int end = ends[i];
+                if (usedFragment[find(parent, end)]) continue;
+                double distance = distanceMatrix.get(current, end);
+                if (distance < nearestDistance) {
+                    nearestDistance = distance;
+                    nearest = end;
+                }
+            }
+            if (nearest < 0) break;
+            current = nearest;
+        }
+        return tour;
+    }
+
+    // Visits cities in Moore curve order over their coordinates; the Moore curve is the
+    // closed variant of the Hilbert curve, so the tour has no long closing edge
+    public static List<Integer> spaceFillingCurve(CoordinateDistanceMatrix distanceMatrix) {
+        int n = distanceMatrix.size();
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < n; c++) {
+            minX = Math.min(minX, distanceMatrix.getX(c));
+            maxX = Math.max(maxX, distanceMatrix.getX(c));
+            minY = Math.min(minY, distanceMatrix.getY(c));
+            maxY = Math.max(maxY, distanceMatrix.getY(c));
+        }
+        int cells = 1 << HILBERT_ORDER;
+        double scale = (cells - 1) / Math.max(1e-12, Math.max(maxX - minX, maxY - minY));
+
+        long[] keys = new long[n];
+        for (int c = 0; c < n; c++) {
+            int hx = (int) ((distanceMatrix.getX(c) - minX) * scale);
+            int hy = (int) ((distanceMatrix.getY(c) - minY) * scale);
+            keys[c] = (mooreIndex(hx, hy, cells) << 32) | c;
+        }
+        Arrays.sort(keys);
+
+        List<Integer> tour = new ArrayList<>(n);
+        for (long key : keys) {
+            tour.add((int) key);
+        }
+        return tour;
+    }
+
+    // Position of cell (x, y) along the Moore curve filling a side x side grid: four
+    // Hilbert curves, one per quadrant, rotated so the curve ends next to its start
+    static long mooreIndex(int x, int y, int side) {
+        int half = side / 2;
+        long quadrantCells = (long) half * half;
+        if (x < half) {
+            return y < half ? hilbertIndex(y, half - 1 - x, half)
+                            : quadrantCells + hilbertIndex(y - half, half - 1 - x, half);
+        }
+        return y >= half ? 2 * quadrantCells + hilbertIndex(side - 1 - y, x - half, half)
+                         : 3 * quadrantCells + hilbertIndex(half - 1 - y, x - half, half);
+    }
+
+    // Position of cell (x, y) along the Hilbert curve filling a side x side grid
+    static long hilbertIndex(int x, int y, int side) {
+        long d = 0;
+        for (int s = side / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return d;
+    }
+
+    // Builds starting tours for many start cities, sharing one setup between them
+    public static final class InitialTours {
+        private final Method method;
+        private final int n;
+        private final NearestNeighborIndex nearestNeighborIndex;
+        // One nearest neighbor search per worker thread, reused for all its starts
+        private final ThreadLocal<NearestNeighborSearch> nearestNeighborSearch;
+        private final List<Integer> baseTour;
+
+        public InitialTours(Method method, DistanceMatrix distanceMatrix, int[][] neighbors) {
+            this.method = method;
+            this.n = distanceMatrix.size();
+            SolverMetrics.Phase phase = SolverMetrics.phase("construction");
+            try {
+                this.nearestNeighborIndex = method == Method.NEAREST_NEIGHBOR ? new NearestNeighborIndex(distanceMatrix) : null;
+                this.baseTour = baseTour(method, distanceMatrix, neighbors);
+            } finally {
+                phase.close();
+            }
+            this.nearestNeighborSearch = nearestNeighborIndex == null ? null : ThreadLocal.withInitial(nearestNeighborIndex::newSearch);
+        }
+
+        private static List<Integer> baseTour(Method method, DistanceMatrix distanceMatrix, int[][] neighbors) {
+            if (method == Method.GREEDY_EDGE) {
+                return greedyEdge(distanceMatrix, neighbors);
+            } else if (method == Method.SPACE_FILLING_CURVE) {
+                if (!(distanceMatrix instanceof CoordinateDistanceMatrix)) {
+                    throw new IllegalArgumentException("Space-filling curve construction needs a coordinate instance");
+                }
+                return spaceFillingCurve((CoordinateDistanceMatrix) distanceMatrix);
+            }
+            return null;
+        }
+
+        // Tour beginning at startCity; random is only used by the RANDOM method
+        public List<Integer> tour(int startCity, Random random) {
+            SolverMetrics.Phase phase = SolverMetrics.phase("construction.start");
+            try {
+                return startTour(startCity, random);
+            } finally {
+                phase.close();
+            }
+        }
+
+        private List<Integer> startTour(int startCity, Random random) {
+            switch (method) {
+                case RANDOM:
+                    return LinKernighanTSP.generateInitialTour(n, startCity, random);
+                case NEAREST_NEIGHBOR:
+                    return nearestNeighborSearch.get().tour(startCity);
+                default:
+                    int offset = baseTour.indexOf(startCity);
+                    List<Integer> tour = new ArrayList<>(n);
+                    tour.addAll(baseTour.subList(offset, n));
+                    tour.addAll(baseTour.subList(0, offset));
+                    return tour;
+            }
+        }
+    }
+
+    private static List<Integer> identity(int n) {
+        List<Integer> tour = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) tour.add(i);
+        return tour;
+    }
+
+    // Next city when every unvisited one is unreachable (a disconnected sparse graph);
+    // the tour then has an INF edge and an infinite length instead of failing
+    static int lowestUnvisited(boolean[] visited) {
+        int city = 0;
+        while (visited[city]) city++;
+        return city;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) return true;
+        }
+        return false;
+    }
+
+    private static int find(int[] parent, int city) {
+        while (parent[city] != city) {
+            parent[city] = parent[parent[city]];
+            city = parent[city];
+        }
+        return city;
+    }
+}
@@ -0,0 +1,26 @@
+import java.util.*;
+
+// What a tour is scored on: the classic total length, or the Bottleneck TSP longest edge
+public enum TourObjective {
+    // Total length, rounded to two decimals like calculateTourDistance
+    SUM {
+        @Override
+        public double evaluate(DistanceMatrix distanceMatrix, List<Integer> tour) {
+            return LinKernighanTSP.calculateTourDistance(distanceMatrix, tour);
+        }
+    },
+    // Longest single edge of the closed tour
+    BOTTLENECK {
+        @Override
+        public double evaluate(DistanceMatrix distanceMatrix, List<Integer> tour) {
+            double longest = 0;
+            int n = tour.size();
+            for (int i = 0; i < n; i++) {
+                longest = Math.max(longest, distanceMatrix.get(tour.get(i), tour.get((i + 1) % n)));
+            }
+            return longest >= DistanceMatrix.INF ? Double.POSITIVE_INFINITY : LinKernighanTSP.roundToTwoDecimals(longest);
+        }
+    };
+
+    public abstract double evaluate(DistanceMatrix distanceMatrix, List<Integer> tour);
+}
@@ -0,0 +1,46 @@
+package tsp.bench;
+
+import java.io.IOException;
+import java.util.Random;
+
+import tsp.CoordinateDistanceMatrix;
+import tsp.DistanceMatrix;
+import tsp.TSPLoader;
+
+// Instances shared by the benchmarks: the two shipped CSVs, or a random EUC_2D
+// instance when the name is a city count
+final class BenchmarkInstances {
+    // Directory holding the CSV files; benchmarks are normally run from benchmarks/
+    static final String DATA_DIR = System.getProperty("tsp.data.dir", "..");
+    private static final long SEED = 42L;
+
+    private BenchmarkInstances() {
+    }
+
+    static String csvPath(String name) {
+        switch (name) {
+            case "EUROPE": return DATA_DIR + "/DistanceBetweenEuropeanCities.csv";
+            case "US": return DATA_DIR + "/DistanceBetweenUSCities.csv";
+            default: throw new IllegalArgumentException("No CSV for instance " + name);
+        }
+    }
+
+    static DistanceMatrix load(String name) throws IOException {
+        if (name.equals("EUROPE") || name.equals("US")) {
+            return TSPLoader.readCSV(csvPath(name), Integer.MAX_VALUE).getDistanceMatrix();
+        }
+        return random(Integer.parseInt(name));
+    }
+
+    // Uniform random points in a 1,000,000 x 1,000,000 square, fixed seed
+    static CoordinateDistanceMatrix random(int n) {
+        Random random = new Random(SEED + n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * 1_000_000;
+            y[i] = random.nextDouble() * 1_000_000;
+        }
+        return new CoordinateDistanceMatrix(x, y, CoordinateDistanceMatrix.Metric.EUC_2D);
+    }
+}
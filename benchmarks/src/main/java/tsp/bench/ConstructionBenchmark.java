@@ -0,0 +1,53 @@
+package tsp.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tsp.DistanceMatrix;
+import tsp.LocalSearchEngine;
+import tsp.NearestNeighborTSP1;
+import tsp.TourConstruction;
+
+// Tour construction on every instance kind, including the O(n^2) full-scan nearestNeighbor
+// (kept to 10k cities; larger sizes are in CoordinateConstructionBenchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ConstructionBenchmark {
+    @Param({"EUROPE", "US", "100", "1000", "10000"})
+    public String instance;
+
+    private DistanceMatrix distanceMatrix;
+    private boolean[] visited;
+    private TourConstruction.NearestNeighborSearch search;
+    private int[][] neighbors;
+
+    @Setup
+    public void setup() throws IOException {
+        distanceMatrix = BenchmarkInstances.load(instance);
+        visited = new boolean[distanceMatrix.size()];
+        search = new TourConstruction.NearestNeighborIndex(distanceMatrix).newSearch();
+        neighbors = LocalSearchEngine.buildNeighborLists(distanceMatrix, TourConstruction.CANDIDATE_COUNT);
+    }
+
+    @Benchmark
+    public List<Integer> nearestNeighborScan() {
+        return NearestNeighborTSP1.nearestNeighbor(distanceMatrix, 0, visited);
+    }
+
+    @Benchmark
+    public List<Integer> nearestNeighborIndexed() {
+        return search.tour(0);
+    }
+
+    @Benchmark
+    public List<Integer> greedyEdge() {
+        return TourConstruction.greedyEdge(distanceMatrix, neighbors);
+    }
+}
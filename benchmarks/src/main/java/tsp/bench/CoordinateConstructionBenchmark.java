@@ -0,0 +1,53 @@
+package tsp.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tsp.CoordinateDistanceMatrix;
+import tsp.LocalSearchEngine;
+import tsp.TourConstruction;
+
+// Index-based construction on random coordinate instances up to 100k cities
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CoordinateConstructionBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int cities;
+
+    private CoordinateDistanceMatrix distanceMatrix;
+    private TourConstruction.NearestNeighborSearch search;
+    private int[][] neighbors;
+
+    @Setup
+    public void setup() {
+        distanceMatrix = BenchmarkInstances.random(cities);
+        search = new TourConstruction.NearestNeighborIndex(distanceMatrix).newSearch();
+        neighbors = LocalSearchEngine.buildNeighborLists(distanceMatrix, TourConstruction.CANDIDATE_COUNT);
+    }
+
+    @Benchmark
+    public int[][] neighborLists() {
+        return LocalSearchEngine.buildNeighborLists(distanceMatrix, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+    }
+
+    @Benchmark
+    public List<Integer> nearestNeighborIndexed() {
+        return search.tour(0);
+    }
+
+    @Benchmark
+    public List<Integer> greedyEdge() {
+        return TourConstruction.greedyEdge(distanceMatrix, neighbors);
+    }
+
+    @Benchmark
+    public List<Integer> spaceFillingCurve() {
+        return TourConstruction.spaceFillingCurve(distanceMatrix);
+    }
+}
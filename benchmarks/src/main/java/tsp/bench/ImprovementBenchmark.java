@@ -0,0 +1,53 @@
+package tsp.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tsp.DistanceMatrix;
+import tsp.LinKernighanTSP;
+import tsp.LocalSearchEngine;
+import tsp.TourConstruction;
+
+// Improvement phase: the list-based twoOptSwap, a full linKernighan run from a
+// nearest neighbor tour, and calculateTourDistance
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ImprovementBenchmark {
+    @Param({"EUROPE", "US", "100", "1000", "10000", "100000"})
+    public String instance;
+
+    private DistanceMatrix distanceMatrix;
+    private LocalSearchEngine engine;
+    private List<Integer> startTour;
+    private int quarter;
+
+    @Setup
+    public void setup() throws IOException {
+        distanceMatrix = BenchmarkInstances.load(instance);
+        engine = new LocalSearchEngine(distanceMatrix, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+        startTour = new TourConstruction.NearestNeighborIndex(distanceMatrix).newSearch().tour(0);
+        quarter = distanceMatrix.size() / 4;
+    }
+
+    @Benchmark
+    public List<Integer> twoOptSwap() {
+        return LinKernighanTSP.twoOptSwap(startTour, quarter, 3 * quarter);
+    }
+
+    @Benchmark
+    public List<Integer> linKernighan() {
+        return LinKernighanTSP.linKernighan(engine, startTour);
+    }
+
+    @Benchmark
+    public double calculateTourDistance() {
+        return LinKernighanTSP.calculateTourDistance(distanceMatrix, startTour);
+    }
+}
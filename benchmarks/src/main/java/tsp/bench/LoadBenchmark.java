@@ -0,0 +1,39 @@
+package tsp.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tsp.DistanceMatrix;
+import tsp.TSPInstance;
+import tsp.TSPLoader;
+
+// readCSV on the shipped edge list files, per storage backend
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+    @Param({"EUROPE", "US"})
+    public String instance;
+
+    @Param({"FLAT", "TRIANGULAR"})
+    public String storage;
+
+    private String path;
+    private DistanceMatrix.Storage backend;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkInstances.csvPath(instance);
+        backend = DistanceMatrix.Storage.valueOf(storage);
+    }
+
+    @Benchmark
+    public TSPInstance readCSV() throws IOException {
+        return TSPLoader.readCSV(path, Integer.MAX_VALUE, backend);
+    }
+}
@@ -0,0 +1,259 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Small deterministic checks of the loaders, the exact solvers, directed local search and
+// the shortest path fill. No test framework: run from the repository root with
+//   javac -d out *.java tests/*.java && java -cp out SolverTests
+// Exits with status 1 if any check fails.
+public class SolverTests {
+    private static final double EPSILON = 1e-6;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("tsp-tests");
+        try {
+            int failures = 0;
+            failures += run("CSV to .tspb round trip", () -> csvRoundTrip(dir));
+            failures += run("directed CSV to .tspb round trip", () -> directedRoundTrip(dir));
+            failures += run("Held-Karp and branch and bound agree", SolverTests::exactSolversAgree);
+            failures += run("exact solvers reject disconnected instances", SolverTests::exactSolversRejectDisconnected);
+            failures += run("directed Or-opt keeps a valid tour", SolverTests::directedOrOpt);
+            failures += run("Dijkstra fill on a sparse graph", SolverTests::dijkstraFill);
+            System.out.println(failures == 0 ? "All tests passed" : failures + " test(s) failed");
+            if (failures > 0) System.exit(1);
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private interface Check {
+        void run() throws Exception;
+    }
+
+    private static int run(String name, Check check) {
+        try {
+            check.run();
+            System.out.println("PASS " + name);
+            return 0;
+        } catch (Exception | AssertionError e) {
+            System.out.println("FAIL " + name + ": " + e);
+            return 1;
+        }
+    }
+
+    // The European CSV survives conversion unchanged, whole and as a prefix
+    private static void csvRoundTrip(Path dir) throws IOException {
+        TSPInstance original = TSPLoader.load("DistanceBetweenEuropeanCities.csv", Integer.MAX_VALUE, DistanceMatrix.Storage.FLAT);
+        Path binary = dir.resolve("europe.tspb");
+        TSPBinaryFormat.writeInstance(original, binary);
+
+        for (DistanceMatrix.Storage storage : new DistanceMatrix.Storage[] {DistanceMatrix.Storage.FLAT, DistanceMatrix.Storage.TRIANGULAR}) {
+            TSPInstance reloaded = TSPLoader.load(binary.toString(), Integer.MAX_VALUE, storage);
+            assertSameInstance(original, reloaded, original.size());
+        }
+        TSPInstance prefix = TSPLoader.load(binary.toString(), 12, DistanceMatrix.Storage.FLAT);
+        assertSameInstance(original, prefix, 12);
+    }
+
+    // A one-way CSV stays directed through the binary file; a prefix that happens to be
+    // symmetric among its own cities does not
+    private static void directedRoundTrip(Path dir) throws IOException {
+        Random random = new Random(7);
+        int n = 15;
+        Path csv = dir.resolve("directed.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            out.write("City1,City2,Distance(km)\n");
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i == j) continue;
+                    // The first three cities are symmetric among themselves
+                    int d = i < 3 && j < 3 ? 10 * (i + j) : 1 + random.nextInt(100);
+                    out.write("C" + i + ",C" + j + "," + d + "\n");
+                }
+            }
+        }
+        TSPInstance original = TSPLoader.load(csv.toString(), Integer.MAX_VALUE, DistanceMatrix.Storage.FLAT, true);
+        check(original.getDistanceMatrix().isDirected(), "CSV instance should be directed");
+
+        Path binary = dir.resolve("directed.tspb");
+        TSPBinaryFormat.writeInstance(original, binary);
+        TSPInstance reloaded = TSPLoader.load(binary.toString(), Integer.MAX_VALUE, DistanceMatrix.Storage.FLAT);
+        assertSameInstance(original, reloaded, n);
+        check(reloaded.getDistanceMatrix().isDirected(), "reloaded instance should be directed");
+
+        TSPInstance prefix = TSPLoader.load(binary.toString(), 3, DistanceMatrix.Storage.FLAT);
+        assertSameInstance(original, prefix, 3);
+        check(!prefix.getDistanceMatrix().isDirected(), "symmetric prefix should not be directed");
+    }
+
+    // Both methods prove the same optimum on small symmetric instances, random and real
+    private static void exactSolversAgree() throws IOException {
+        Random random = new Random(42);
+        List<DistanceMatrix> instances = new ArrayList<>();
+        for (int t = 0; t < 5; t++) {
+            int n = 8 + t;
+            double[][] d = new double[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    d[i][j] = d[j][i] = 1 + random.nextInt(1000);
+                }
+            }
+            instances.add(DistanceMatrix.of(d));
+        }
+        instances.add(TSPLoader.load("DistanceBetweenEuropeanCities.csv", 14, DistanceMatrix.Storage.FLAT).getDistanceMatrix());
+        instances.add(TSPLoader.load("DistanceBetweenUSCities.csv", 14, DistanceMatrix.Storage.FLAT).getDistanceMatrix());
+
+        for (DistanceMatrix distanceMatrix : instances) {
+            ExactSolver.Result heldKarp = ExactSolver.heldKarp(distanceMatrix, 2);
+            ExactSolver.Result branchAndBound = ExactSolver.branchAndBound(distanceMatrix, identity(distanceMatrix.size()), null);
+            check(heldKarp.optimal && branchAndBound.optimal, "both results should be proven optimal");
+            checkClose(heldKarp.length, branchAndBound.length, "optimal length");
+            assertPermutation(heldKarp.tour, distanceMatrix.size());
+            assertPermutation(branchAndBound.tour, distanceMatrix.size());
+            checkClose(heldKarp.length, LinKernighanTSP.calculateTourDistance(distanceMatrix, heldKarp.tour), "Held-Karp tour length");
+            checkClose(branchAndBound.length, LinKernighanTSP.calculateTourDistance(distanceMatrix, branchAndBound.tour), "branch and bound tour length");
+        }
+    }
+
+    // Two cliques with no edge between them have no tour at all
+    private static void exactSolversRejectDisconnected() {
+        int n = 8;
+        double[][] d = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) d[i][j] = (i < 4) == (j < 4) ? 1 + i + j : DistanceMatrix.INF;
+            }
+        }
+        DistanceMatrix distanceMatrix = DistanceMatrix.of(d);
+        expectIllegalArgument(() -> ExactSolver.heldKarp(distanceMatrix, 1), "Held-Karp");
+        expectIllegalArgument(() -> ExactSolver.branchAndBound(distanceMatrix, identity(n), null), "branch and bound");
+    }
+
+    // Local search on an asymmetric matrix goes through the directed Or-opt moves; the
+    // result must still visit every city once and be no longer than the start
+    private static void directedOrOpt() {
+        Random random = new Random(3);
+        for (int t = 0; t < 5; t++) {
+            int n = 40 + 20 * t;
+            double[][] d = new double[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (i != j) d[i][j] = 1 + random.nextInt(1000);
+                }
+            }
+            DistanceMatrix distanceMatrix = DistanceMatrix.of(d);
+            check(distanceMatrix.isDirected(), "random matrix should be directed");
+
+            List<Integer> start = identity(n);
+            Collections.shuffle(start, random);
+            int[] tour = start.stream().mapToInt(Integer::intValue).toArray();
+            LocalSearchEngine engine = new LocalSearchEngine(distanceMatrix, LocalSearchEngine.DEFAULT_NEIGHBOR_COUNT);
+            engine.optimize(tour);
+
+            List<Integer> improved = LinKernighanTSP.toList(tour, 0);
+            assertPermutation(improved, n);
+            for (int i = 0; i < n; i++) {
+                check(engine.positionOf(tour[i]) == i, "position index out of date at " + i);
+            }
+            double before = LinKernighanTSP.calculateTourDistance(distanceMatrix, start);
+            double after = LinKernighanTSP.calculateTourDistance(distanceMatrix, improved);
+            check(after <= before + EPSILON, "tour got longer: " + before + " -> " + after);
+        }
+    }
+
+    // 0 -> 1 -> 2 -> 3 with a costly shortcut 0 -> 3, and city 4 only reachable from 3
+    private static void dijkstraFill() {
+        int[] from = {0, 1, 2, 0, 3};
+        int[] to = {1, 2, 3, 3, 4};
+        double[] weight = {1, 2, 3, 10, 5};
+        double inf = DistanceMatrix.INF;
+
+        SparseGraph directed = new SparseGraph(5, from, to, weight, from.length, true);
+        double[][] expectedDirected = {
+                {0, 1, 3, 6, 11},
+                {inf, 0, 2, 5, 10},
+                {inf, inf, 0, 3, 8},
+                {inf, inf, inf, 0, 5},
+                {inf, inf, inf, inf, 0},
+        };
+        assertMatrix(directed.shortestPathMatrix(DistanceMatrix.Storage.FLAT, 2), expectedDirected);
+
+        SparseGraph undirected = new SparseGraph(5, from, to, weight, from.length, false);
+        double[][] expectedUndirected = {
+                {0, 1, 3, 6, 11},
+                {1, 0, 2, 5, 10},
+                {3, 2, 0, 3, 8},
+                {6, 5, 3, 0, 5},
+                {11, 10, 8, 5, 0},
+        };
+        assertMatrix(undirected.shortestPathMatrix(DistanceMatrix.Storage.FLAT, 2), expectedUndirected);
+        assertMatrix(undirected.shortestPathMatrix(DistanceMatrix.Storage.TRIANGULAR, 2), expectedUndirected);
+
+        // Two components: no path either way between them
+        SparseGraph split = new SparseGraph(4, new int[] {0, 2}, new int[] {1, 3}, new double[] {4, 7}, 2, false);
+        DistanceMatrix splitMatrix = split.shortestPathMatrix(DistanceMatrix.Storage.FLAT, 1);
+        check(splitMatrix.get(0, 2) >= inf && splitMatrix.get(3, 1) >= inf, "components should not be connected");
+        checkClose(splitMatrix.get(1, 0), 4, "distance (1, 0)");
+    }
+
+    private static void assertSameInstance(TSPInstance expected, TSPInstance actual, int n) {
+        check(actual.size() == n, "expected " + n + " cities, got " + actual.size());
+        check(actual.getCityNames().equals(expected.getCityNames().subList(0, n)), "city names differ");
+        DistanceMatrix a = expected.getDistanceMatrix();
+        DistanceMatrix b = actual.getDistanceMatrix();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) checkClose(a.get(i, j), b.get(i, j), "distance (" + i + ", " + j + ")");
+            }
+        }
+    }
+
+    private static void assertMatrix(DistanceMatrix actual, double[][] expected) {
+        check(actual.size() == expected.length, "expected " + expected.length + " cities, got " + actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected.length; j++) {
+                if (expected[i][j] >= DistanceMatrix.INF) {
+                    check(actual.get(i, j) >= DistanceMatrix.INF, "(" + i + ", " + j + ") should be unreachable");
+                } else {
+                    checkClose(expected[i][j], actual.get(i, j), "distance (" + i + ", " + j + ")");
+                }
+            }
+        }
+    }
+
+    private static void assertPermutation(List<Integer> tour, int n) {
+        check(tour.size() == n, "tour has " + tour.size() + " cities, expected " + n);
+        boolean[] seen = new boolean[n];
+        for (int city : tour) {
+            check(city >= 0 && city < n && !seen[city], "city " + city + " missing or repeated");
+            seen[city] = true;
+        }
+    }
+
+    private static void expectIllegalArgument(Runnable action, String what) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError(what + " should have thrown IllegalArgumentException");
+    }
+
+    private static void checkClose(double expected, double actual, String what) {
+        check(Math.abs(expected - actual) <= EPSILON * Math.max(1, Math.abs(expected)), what + ": expected " + expected + ", got " + actual);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    private static List<Integer> identity(int n) {
+        List<Integer> tour = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) tour.add(i);
+        return tour;
+    }
+}